@@ -2,20 +2,33 @@ package com.example.EmailService.Clients;
 
 import com.example.shared.Task;
 import org.springframework.cloud.openfeign.FeignClient;
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "queue-service")
 public interface QueueServiceClient {
-    @GetMapping("/queue/dequeue")
-    Task getFrontTask();
+    @PostMapping("/queue/claim")
+    List<Task> claimTasks(
+            @RequestParam("type") String type,
+            @RequestParam("max") int max,
+            @RequestParam("waitSeconds") long waitSeconds
+    );
 
-    @PostMapping("/queue/dequeue")
-    Task popFrontTask(@RequestParam("id") String taskId);
+    @PostMapping("/queue/lease/{id}/extend")
+    void extendLease(
+            @PathVariable("id") String taskId,
+            @RequestParam("receipt") String receipt,
+            @RequestParam("seconds") long seconds
+    );
 
-    @PostMapping("/queue/markTaskAsCompleted")
-    void markTaskAsCompleted(@RequestBody Task task);
+    @PostMapping("/queue/ack/{id}")
+    void ack(
+            @PathVariable("id") String taskId,
+            @RequestParam("receipt") String receipt,
+            @RequestParam(value = "resultUrl", required = false) String resultUrl
+    );
 }
 
@@ -4,63 +4,86 @@ import com.example.EmailService.Clients.QueueServiceClient;
 import com.example.shared.EmailRequest;
 import com.example.shared.Task;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
+// Claimed emails are sent one after another, so every task of a batch keeps its lease alive from
+// the moment it is claimed until it is acked; otherwise the last ones could expire and be sent twice.
 @Slf4j
 @Component
 public class EmailPoller {
 
     private final QueueServiceClient queueServiceClient;
     private final EmailSenderService emailSenderService;
+    private final LeaseHeartbeat leaseHeartbeat;
+    private final long claimWaitSeconds;
+    private final int claimBatchSize;
 
     public EmailPoller(final QueueServiceClient queueServiceClient,
-                       final EmailSenderService emailSenderService) {
+                       final EmailSenderService emailSenderService,
+                       final LeaseHeartbeat leaseHeartbeat,
+                       @Value("${queue.claim.wait-seconds:20}") final long claimWaitSeconds,
+                       @Value("${queue.claim.batch-size:5}") final int claimBatchSize) {
         this.queueServiceClient = queueServiceClient;
         this.emailSenderService = emailSenderService;
+        this.leaseHeartbeat = leaseHeartbeat;
+        this.claimWaitSeconds = claimWaitSeconds;
+        this.claimBatchSize = claimBatchSize;
         log.info("EmailPoller initialized successfully");
     }
-    @Scheduled(fixedDelay = 5000)
+
+    @Scheduled(fixedDelayString = "${queue.poll.delay-ms:250}")
     public void pollQueue() {
         log.debug("Polling queue for email tasks...");
 
+        final List<Task> tasks;
         try {
-            final Task task = queueServiceClient.getFrontTask();
-            if (task == null) {
-                log.trace("No tasks found in the email queue");
-                return;
-            }
-
-            log.info("Found task ID={}, type={}", task.getId(), task.getType());
-
-            if ("email".equalsIgnoreCase(task.getType())) {
-                log.debug("Processing email task ID={}", task.getId());
+            tasks = queueServiceClient.claimTasks("email", claimBatchSize, claimWaitSeconds);
+        } catch (Exception e) {
+            log.error("Error while polling email queue: {}", e.getMessage(), e);
+            return;
+        }
 
-                final Task dequeued = queueServiceClient.popFrontTask(task.getId());
-                if (dequeued == null) {
-                    log.warn("Task ID={} could not be dequeued (possibly already in processing)", task.getId());
-                    return;
-                }
+        if (tasks == null || tasks.isEmpty()) {
+            log.trace("No tasks found in the email queue");
+            return;
+        }
 
-                final var payload = dequeued.getPayload();
-                final String to = (String) payload.get("to");
-                final String subject = (String) payload.get("subject");
-                final String body = (String) payload.get("body");
-                final boolean html = payload.get("html") != null && Boolean.parseBoolean(payload.get("html").toString());
+        log.info("Claimed {} email task(s)", tasks.size());
+        final List<LeaseHeartbeat.Handle> heartbeats = new ArrayList<>(tasks.size());
+        for (final Task task : tasks) {
+            heartbeats.add(leaseHeartbeat.start(task.getId(), task.getReceipt()));
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            try {
+                processTask(tasks.get(i));
+            } finally {
+                heartbeats.get(i).close();
+            }
+        }
+    }
 
-                log.info("Preparing email for recipient={}, subject={}", to, subject);
+    private void processTask(final Task task) {
+        try {
+            final var payload = task.getPayload();
+            final String to = (String) payload.get("to");
+            final String subject = (String) payload.get("subject");
+            final String body = (String) payload.get("body");
+            final boolean html = payload.get("html") != null && Boolean.parseBoolean(payload.get("html").toString());
 
-                final EmailRequest request = new EmailRequest(to, subject, body, html);
-                emailSenderService.sendEmail(request);
+            log.info("Preparing email for task ID={}, recipient={}, subject={}", task.getId(), to, subject);
 
-                queueServiceClient.markTaskAsCompleted(dequeued);
-                log.info("Successfully processed and completed email task ID={} for recipient={}", task.getId(), to);
-            } else {
-                log.debug("Skipping non-email task type: {}", task.getType());
-            }
+            final EmailRequest request = new EmailRequest(to, subject, body, html);
+            emailSenderService.sendEmail(request);
 
+            queueServiceClient.ack(task.getId(), task.getReceipt(), null);
+            log.info("Successfully processed and completed email task ID={} for recipient={}", task.getId(), to);
         } catch (Exception e) {
-            log.error("Error while polling or processing email queue: {}", e.getMessage(), e);
+            log.error("Error while processing email task ID={}: {}", task.getId(), e.getMessage(), e);
         }
     }
 }
@@ -0,0 +1,80 @@
+package com.example.ImageWorker;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Image tasks alternate between blocking network calls and CPU-bound image work. Network stages
+// would ideally run on virtual threads, but the service targets Java 17, so they run on a pool of
+// platform threads that grows on demand up to max-in-flight and shrinks when idle. A task runs at
+// most one network stage at a time and the Poller never has more than max-in-flight tasks claimed,
+// so that cap is never queued behind. Image work runs on a fixed pool with one thread per core so
+// it never oversubscribes, and large images are split into row bands on a fork-join pool of the
+// same size.
+@Slf4j
+@Component
+public class ImageWorkerExecutors {
+
+    private final ExecutorService io;
+    private final ExecutorService cpu;
+    private final ForkJoinPool kernels;
+    private final int cpuThreads;
+    private final int maxInFlight;
+
+    public ImageWorkerExecutors(@Value("${queue.worker.threads:0}") final int threads,
+                                @Value("${queue.worker.max-in-flight:0}") final int maxInFlight) {
+        this.cpuThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Twice the CPU threads by default, so a task can be downloading or uploading for every one being processed
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 2 * cpuThreads;
+        final ThreadPoolExecutor ioPool = new ThreadPoolExecutor(this.maxInFlight, this.maxInFlight,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), named("image-io"));
+        ioPool.allowCoreThreadTimeOut(true);
+        this.io = ioPool;
+        this.cpu = Executors.newFixedThreadPool(cpuThreads, named("image-cpu"));
+        this.kernels = new ForkJoinPool(cpuThreads);
+        log.info("ImageWorkerExecutors initialized with {} CPU thread(s) and up to {} I/O thread(s)",
+                cpuThreads, this.maxInFlight);
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    public ForkJoinPool kernels() {
+        return kernels;
+    }
+
+    public int cpuThreads() {
+        return cpuThreads;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        io.shutdownNow();
+        cpu.shutdownNow();
+        kernels.shutdownNow();
+    }
+
+    private static ThreadFactory named(final String prefix) {
+        final AtomicInteger ids = new AtomicInteger();
+        return runnable -> new Thread(runnable, prefix + "-" + ids.incrementAndGet());
+    }
+}
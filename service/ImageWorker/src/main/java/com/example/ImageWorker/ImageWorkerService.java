@@ -1,5 +1,7 @@
 package com.example.ImageWorker;
 
+import com.example.ImageWorker.Imaging.ImageTransformer;
+import com.example.ImageWorker.Imaging.TransformPlan;
 import com.example.shared.Task;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,7 +17,6 @@ import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
-import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
 import java.net.URI;
@@ -24,11 +25,12 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.Instant;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -39,17 +41,23 @@ public class ImageWorkerService {
     private final String region;
     private final String lambdaDownloadUrl;
     private final HttpClient httpClient;
-    private static final int MAX_WIDTH = 1024;
-    private static final int MAX_HEIGHT = 1024;
+    private final ImageWorkerExecutors executors;
+    private final ImageTransformer imageTransformer;
 
     public ImageWorkerService(
             @Value("${aws.s3.bucket}") final String bucketName,
             @Value("${aws.region:us-east-1}") final String region,
-            @Value("${aws.lambda.download.url}") final String lambdaDownloadUrl
+            @Value("${aws.lambda.download.url}") final String lambdaDownloadUrl,
+            final ImageWorkerExecutors executors,
+            final ImageTransformer imageTransformer
     ) {
         this.bucketName = bucketName;
         this.region = region;
         this.lambdaDownloadUrl = lambdaDownloadUrl;
+        this.executors = executors;
+        this.imageTransformer = imageTransformer;
+        // The client keeps its own executor: its internal async work must not queue behind the
+        // bounded I/O pool threads that are blocked in send() waiting for it
         this.httpClient = HttpClient.newHttpClient();
         this.s3Client = S3Client.builder()
                 .region(Region.of(region))
@@ -59,7 +67,9 @@ public class ImageWorkerService {
         log.info("Initialized ImageWorkerService for region '{}' and bucket '{}'", region, bucketName);
     }
 
-    public void process(final Task task) throws Exception {
+    // Runs the task as a pipeline of fetch, decode/transform, encode and upload stages. Fetch and
+    // upload wait on the network on the I/O pool, so other tasks keep the CPU pool busy meanwhile.
+    public CompletableFuture<Task> process(final Task task) {
         final long start = System.currentTimeMillis();
         log.info("Starting image processing for task ID: {}", task.getId());
 
@@ -70,146 +80,83 @@ public class ImageWorkerService {
 
         log.debug("Task {} payload: S3 Key={}, File={}, Options={}", task.getId(), s3Key, fileName, options);
 
-        final Path input = Files.createTempFile("input-", "-" + fileName);
-        final Path output = Files.createTempFile("processed-", "-" + fileName.replaceAll("\\..+$", ".jpg"));
-        log.debug("Temporary input file: {}", input);
-        log.debug("Temporary output file: {}", output);
-
+        // Bad options fail the task before anything is downloaded
+        final TransformPlan plan;
         try {
-            log.info("Downloading image from S3 via Lambda for task {}", task.getId());
-            downloadFromLambda(s3Key, input);
-            log.info("Successfully downloaded image for task {}", task.getId());
-
-            BufferedImage img = ImageIO.read(input.toFile());
-            if (img == null) {
-                log.error("Invalid image format for file '{}'", fileName);
-                throw new IOException("Invalid image format: " + fileName);
-            }
-            log.debug("Loaded image: {}x{}", img.getWidth(), img.getHeight());
-
-            // Apply transformations
-            if (getBoolean(options, "resize")) {
-                log.info("Applying resize to task {}", task.getId());
-                img = resizeIfNeeded(img);
-            }
-            if (getBoolean(options, "grayscale")) {
-                log.info("Applying grayscale filter to task {}", task.getId());
-                img = convertToGrayscale(img);
-            }
-            if (getBoolean(options, "invert")) {
-                log.info("Applying color inversion to task {}", task.getId());
-                img = invertColors(img);
-            }
-            if (getBoolean(options, "blur")) {
-                log.info("Applying blur filter to task {}", task.getId());
-                img = blurImage(img);
-            }
-            if (options.get("watermark") != null) {
-                log.info("Adding watermark '{}' to task {}", options.get("watermark"), task.getId());
-                img = addWatermark(img, options.get("watermark").toString());
-            }
-
-            log.info("Compressing task {} image to JPEG", task.getId());
-            compressToJPEG(img, output, 0.85f);
-
-            final String key = String.format("processed/%s/%d-%s",
-                    task.getId(), Instant.now().getEpochSecond(),
-                    fileName.replaceAll("\\..+$", ".jpg"));
-            log.debug("Generated S3 output key: {}", key);
-
-            log.info("Uploading processed image for task {} to S3", task.getId());
-            uploadToS3(output, key);
-            log.info("Successfully uploaded processed image to S3 with key {}", key);
-
-            task.setResultUrl(key);
-            log.debug("Set result S3 key for task {}: {}", task.getId(), task.getResultUrl());
-
-        } catch (Exception e) {
-            log.error("Error processing image for task {}: {}", task.getId(), e.getMessage(), e);
-            throw e;
-        } finally {
-            log.debug("Cleaning up temporary files for task {}", task.getId());
-            Files.deleteIfExists(input);
-            Files.deleteIfExists(output);
+            plan = TransformPlan.compile(options);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid options for task {}: {}", task.getId(), e.getMessage());
+            return CompletableFuture.failedFuture(e);
         }
 
-        final double time = (System.currentTimeMillis() - start) / 1000.0;
-        log.info("Image processing for task {} completed in {}s", task.getId(), time);
+        return CompletableFuture
+                .completedFuture(s3Key)
+                .thenApplyAsync(stage(key -> fetch(task, key)), executors.io())
+                .thenApplyAsync(stage(bytes -> transform(task, fileName, plan, bytes)), executors.cpu())
+                .thenApplyAsync(stage(img -> encode(task, img)), executors.cpu())
+                .thenApplyAsync(stage(jpeg -> upload(task, fileName, jpeg)), executors.io())
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("Error processing image for task {}: {}", task.getId(), cause.getMessage(), cause);
+                        return;
+                    }
+                    final double time = (System.currentTimeMillis() - start) / 1000.0;
+                    log.info("Image processing for task {} completed in {}s", task.getId(), time);
+                });
     }
 
-    // --- Image processing helpers ---
-
-    private BufferedImage resizeIfNeeded(BufferedImage img) {
-        int width = img.getWidth(), height = img.getHeight();
-        if (width <= MAX_WIDTH && height <= MAX_HEIGHT) return img;
+    private byte[] fetch(final Task task, final String s3Key) throws IOException {
+        log.info("Downloading image from S3 via Lambda for task {}", task.getId());
+        final byte[] bytes = downloadFromLambda(s3Key);
+        log.info("Successfully downloaded image for task {}", task.getId());
+        return bytes;
+    }
 
-        double scale = Math.min((double) MAX_WIDTH / width, (double) MAX_HEIGHT / height);
-        int newW = (int) (width * scale), newH = (int) (height * scale);
+    private BufferedImage transform(final Task task, final String fileName, final TransformPlan plan,
+                                    final byte[] bytes) throws IOException {
+        final BufferedImage img = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (img == null) {
+            log.error("Invalid image format for file '{}'", fileName);
+            throw new IOException("Invalid image format: " + fileName);
+        }
+        log.debug("Loaded image: {}x{}", img.getWidth(), img.getHeight());
 
-        Image scaled = img.getScaledInstance(newW, newH, Image.SCALE_SMOOTH);
-        BufferedImage resized = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = resized.createGraphics();
-        g.drawImage(scaled, 0, 0, null);
-        g.dispose();
-        log.debug("Resized image to {}x{}", newW, newH);
-        return resized;
+        log.info("Applying {} to task {}", plan.describe(), task.getId());
+        final BufferedImage transformed = imageTransformer.apply(img, plan);
+        log.debug("Transformed image: {}x{}", transformed.getWidth(), transformed.getHeight());
+        return transformed;
     }
 
-    private BufferedImage convertToGrayscale(BufferedImage original) {
-        BufferedImage gray = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-        Graphics2D g2d = gray.createGraphics();
-        g2d.drawImage(original, 0, 0, null);
-        g2d.dispose();
-        log.debug("Converted image to grayscale");
-        return gray;
+    private byte[] encode(final Task task, final BufferedImage img) throws IOException {
+        log.info("Compressing task {} image to JPEG", task.getId());
+        return compressToJPEG(img, 0.85f);
     }
 
-    private BufferedImage invertColors(BufferedImage img) {
-        BufferedImage inverted = new BufferedImage(img.getWidth(), img.getHeight(), img.getType());
-        for (int y = 0; y < img.getHeight(); y++) {
-            for (int x = 0; x < img.getWidth(); x++) {
-                int rgba = img.getRGB(x, y);
-                Color col = new Color(rgba, true);
-                col = new Color(255 - col.getRed(), 255 - col.getGreen(), 255 - col.getBlue());
-                inverted.setRGB(x, y, col.getRGB());
-            }
-        }
-        log.debug("Inverted image colors");
-        return inverted;
-    }
+    private Task upload(final Task task, final String fileName, final byte[] jpeg) throws IOException {
+        final String key = String.format("processed/%s/%d-%s",
+                task.getId(), Instant.now().getEpochSecond(),
+                fileName.replaceAll("\\..+$", ".jpg"));
+        log.debug("Generated S3 output key: {}", key);
 
-    private BufferedImage blurImage(BufferedImage img) {
-        float[] kernel = {
-                1 / 9f, 1 / 9f, 1 / 9f,
-                1 / 9f, 1 / 9f, 1 / 9f,
-                1 / 9f, 1 / 9f, 1 / 9f
-        };
-        ConvolveOp op = new ConvolveOp(new Kernel(3, 3, kernel));
-        BufferedImage blurred = op.filter(img, null);
-        log.debug("Applied blur filter");
-        return blurred;
-    }
+        log.info("Uploading processed image for task {} to S3", task.getId());
+        uploadToS3(jpeg, key);
+        log.info("Successfully uploaded processed image to S3 with key {}", key);
 
-    private BufferedImage addWatermark(BufferedImage img, String text) {
-        Graphics2D g2d = (Graphics2D) img.getGraphics();
-        g2d.setFont(new Font("Arial", Font.BOLD, 30));
-        g2d.setColor(new Color(255, 255, 255, 180));
-        FontMetrics fm = g2d.getFontMetrics();
-        int x = img.getWidth() - fm.stringWidth(text) - 20;
-        int y = img.getHeight() - 20;
-        g2d.drawString(text, x, y);
-        g2d.dispose();
-        log.debug("Added watermark: {}", text);
-        return img;
+        task.setResultUrl(key);
+        log.debug("Set result S3 key for task {}: {}", task.getId(), task.getResultUrl());
+        return task;
     }
 
-    private void compressToJPEG(BufferedImage img, Path output, float quality) throws IOException {
+    // --- Image processing helpers ---
+
+    private byte[] compressToJPEG(BufferedImage img, float quality) throws IOException {
         Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
         if (!writers.hasNext()) throw new IllegalStateException("No JPEG writers available");
         ImageWriter writer = writers.next();
 
-        try (OutputStream os = new FileOutputStream(output.toFile());
-             ImageOutputStream ios = ImageIO.createImageOutputStream(os)) {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(os)) {
             writer.setOutput(ios);
             ImageWriteParam param = writer.getDefaultWriteParam();
             param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
@@ -219,16 +166,17 @@ public class ImageWorkerService {
         } finally {
             writer.dispose();
         }
+        return os.toByteArray();
     }
 
-    private void uploadToS3(Path filePath, String key) throws IOException {
+    private void uploadToS3(byte[] bytes, String key) throws IOException {
         try {
             s3Client.putObject(
                     PutObjectRequest.builder()
                             .bucket(bucketName)
                             .key(key)
                             .build(),
-                    RequestBody.fromFile(filePath)
+                    RequestBody.fromBytes(bytes)
             );
             log.debug("Uploaded file to S3 key {}", key);
         } catch (Exception e) {
@@ -237,7 +185,7 @@ public class ImageWorkerService {
         }
     }
 
-    private void downloadFromLambda(final String s3Key, final Path dest) throws IOException {
+    private byte[] downloadFromLambda(final String s3Key) throws IOException {
         try {
             final String encodedKey = URLEncoder.encode(s3Key, StandardCharsets.UTF_8);
             final String url = lambdaDownloadUrl + "?key=" + encodedKey;
@@ -254,19 +202,27 @@ public class ImageWorkerService {
                 throw new IOException("Lambda download failed with status " + response.statusCode());
             }
 
-            try (OutputStream out = new FileOutputStream(dest.toFile())) {
-                out.write(response.body());
-            }
-
             log.debug("Downloaded {} bytes from Lambda for key {}", response.body().length, s3Key);
+            return response.body();
         } catch (Exception e) {
             log.error("Failed to download file from Lambda: {}", e.getMessage(), e);
             throw new IOException("Failed to download file from Lambda: " + e.getMessage(), e);
         }
     }
 
-    private boolean getBoolean(Map<String, Object> options, String key) {
-        Object val = options.get(key);
-        return val != null && Boolean.parseBoolean(val.toString());
+    // Checked exceptions are wrapped once here so each stage can keep its IOException signature
+    private static <T, R> Function<T, R> stage(final Stage<T, R> stage) {
+        return input -> {
+            try {
+                return stage.apply(input);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Stage<T, R> {
+        R apply(T input) throws Exception;
     }
 }
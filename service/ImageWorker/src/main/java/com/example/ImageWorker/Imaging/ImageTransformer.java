@@ -0,0 +1,60 @@
+package com.example.ImageWorker.Imaging;
+
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Runs a {@link TransformPlan}. After the resize, the pixel options allocate at most one new
+ * image between them: invert on its own runs in place, and the watermark is drawn onto whichever
+ * image the earlier passes produced. Translucent results are flattened over black first, since
+ * the output is always encoded as JPEG.
+ */
+@Component
+public class ImageTransformer {
+
+    private final PixelKernels pixelKernels;
+    private final Resampler resampler;
+
+    public ImageTransformer(final PixelKernels pixelKernels, final Resampler resampler) {
+        this.pixelKernels = pixelKernels;
+        this.resampler = resampler;
+    }
+
+    public BufferedImage apply(final BufferedImage img, final TransformPlan plan) {
+        BufferedImage current = img;
+        if (plan.resize() != null) {
+            final TransformPlan.Resize resize = plan.resize();
+            current = resampler.fit(current, resize.maxWidth(), resize.maxHeight(), resize.filter());
+        }
+
+        if (plan.blur()) {
+            current = pixelKernels.boxBlur(current, plan.grayscale(), plan.invert());
+        } else if (plan.grayscale()) {
+            current = pixelKernels.grayscale(current, plan.invert());
+        } else if (plan.invert()) {
+            current = pixelKernels.invert(current);
+        }
+
+        current = pixelKernels.flatten(current);
+        if (plan.watermark() != null) {
+            drawWatermark(current, plan.watermark());
+        }
+        return current;
+    }
+
+    private static void drawWatermark(final BufferedImage img, final String text) {
+        final Graphics2D g2d = img.createGraphics();
+        g2d.setFont(new Font("Arial", Font.BOLD, 30));
+        g2d.setColor(new Color(255, 255, 255, 180));
+        final FontMetrics fm = g2d.getFontMetrics();
+        final int x = img.getWidth() - fm.stringWidth(text) - 20;
+        final int y = img.getHeight() - 20;
+        g2d.drawString(text, x, y);
+        g2d.dispose();
+    }
+}
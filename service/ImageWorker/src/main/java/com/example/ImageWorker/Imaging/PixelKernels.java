@@ -0,0 +1,318 @@
+package com.example.ImageWorker.Imaging;
+
+import com.example.ImageWorker.ImageWorkerExecutors;
+import org.springframework.stereotype.Component;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Pixel filters that work directly on the backing arrays of the common {@link BufferedImage}
+ * layouts, so nothing is allocated per pixel. Large images are split into {@link RowBands}. Any
+ * other layout is first redrawn into {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB}.
+ */
+@Component
+public class PixelKernels {
+
+    private final RowBands rowBands;
+
+    public PixelKernels(final ImageWorkerExecutors executors) {
+        this.rowBands = new RowBands(executors.kernels());
+    }
+
+    /** Inverts the colour channels in place, keeping alpha. May return a converted copy. */
+    public BufferedImage invert(final BufferedImage img) {
+        final BufferedImage target = direct(img);
+        final int width = target.getWidth();
+        switch (target.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                final int[] px = ints(target);
+                final int stride = stride(target);
+                rowBands.forRows(target, (from, to) -> {
+                    for (int y = from; y < to; y++) {
+                        for (int i = y * stride, end = i + width; i < end; i++) {
+                            px[i] ^= 0x00FFFFFF;
+                        }
+                    }
+                });
+            }
+            case BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_3BYTE_BGR -> {
+                final byte[] px = bytes(target);
+                final int stride = stride(target);
+                final int rowLength = width * target.getRaster().getNumBands();
+                rowBands.forRows(target, (from, to) -> {
+                    for (int y = from; y < to; y++) {
+                        for (int i = y * stride, end = i + rowLength; i < end; i++) {
+                            px[i] = (byte) ~px[i];
+                        }
+                    }
+                });
+            }
+            default -> {
+                // TYPE_4BYTE_ABGR: every fourth byte, starting at the first, is alpha
+                final byte[] px = bytes(target);
+                final int stride = stride(target);
+                rowBands.forRows(target, (from, to) -> {
+                    for (int y = from; y < to; y++) {
+                        for (int i = y * stride, end = i + width * 4; i < end; i += 4) {
+                            px[i + 1] = (byte) ~px[i + 1];
+                            px[i + 2] = (byte) ~px[i + 2];
+                            px[i + 3] = (byte) ~px[i + 3];
+                        }
+                    }
+                });
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Composites a translucent image over black into {@code TYPE_INT_RGB}, as drawing it onto a
+     * new RGB image would. JPEG cannot carry alpha, so this runs before encoding. Opaque images
+     * are returned as they are.
+     */
+    public BufferedImage flatten(final BufferedImage img) {
+        if (!img.getColorModel().hasAlpha()) {
+            return img;
+        }
+        final BufferedImage source = direct(img);
+        final BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        if (source.getType() != BufferedImage.TYPE_INT_ARGB) {
+            final Graphics2D g = rgb.createGraphics();
+            g.drawImage(source, 0, 0, null);
+            g.dispose();
+            return rgb;
+        }
+        final int[] px = ints(source);
+        final int[] out = ints(rgb);
+        final int width = source.getWidth();
+        final int stride = stride(source);
+        final int outStride = stride(rgb);
+        rowBands.forRows(source, (from, to) -> {
+            for (int y = from; y < to; y++) {
+                for (int x = 0, i = y * stride, o = y * outStride; x < width; x++, i++, o++) {
+                    final int p = px[i];
+                    final int a = p >>> 24;
+                    out[o] = div255(((p >> 16) & 0xFF) * a) << 16
+                            | div255(((p >> 8) & 0xFF) * a) << 8
+                            | div255((p & 0xFF) * a);
+                }
+            }
+        });
+        return rgb;
+    }
+
+    /**
+     * Converts to an 8-bit gray image using Rec. 601 luma, optionally inverted in the same pass.
+     * Translucent pixels are composited over black, as drawing them onto a new gray image would.
+     */
+    public BufferedImage grayscale(final BufferedImage img, final boolean invert) {
+        if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return invert ? invert(img) : img;
+        }
+        final BufferedImage source = direct(img);
+        final BufferedImage gray = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        final byte[] out = bytes(gray);
+        final int outStride = stride(gray);
+        final int flip = invert ? 0xFF : 0;
+        rowBands.forRows(source, (from, to) -> {
+            final int[] row = new int[source.getWidth()];
+            for (int y = from; y < to; y++) {
+                lumaRow(source, y, row);
+                for (int x = 0, o = y * outStride; x < row.length; x++, o++) {
+                    out[o] = (byte) (row[x] ^ flip);
+                }
+            }
+        });
+        return gray;
+    }
+
+    /**
+     * 3x3 box blur, optionally converting to gray and inverting in the same pass. Both commute
+     * with the blur, so the result matches applying them first. Each output row sums its three
+     * source rows per column, then three columns per pixel. Edge pixels repeat the nearest row or
+     * column instead of being left black.
+     */
+    public BufferedImage boxBlur(final BufferedImage img, final boolean grayscale, final boolean invert) {
+        if (grayscale || img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return grayBoxBlur(direct(img), invert);
+        }
+
+        final BufferedImage source = intImage(img);
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final BufferedImage blurred = new BufferedImage(width, height, source.getType());
+        final int stride = stride(source);
+        final int outStride = stride(blurred);
+        final int[] px = ints(source);
+        final int[] out = ints(blurred);
+        final boolean alpha = source.getType() == BufferedImage.TYPE_INT_ARGB;
+        final int flip = invert ? 0x00FFFFFF : 0;
+        rowBands.forRows(source, (from, to) -> {
+            final long[] columns = new long[width];
+            for (int y = from; y < to; y++) {
+                final int above = Math.max(y - 1, 0) * stride;
+                final int row = y * stride;
+                final int below = Math.min(y + 1, height - 1) * stride;
+                for (int x = 0; x < width; x++) {
+                    columns[x] = spread(px[above + x]) + spread(px[row + x]) + spread(px[below + x]);
+                }
+                for (int x = 0, o = y * outStride; x < width; x++, o++) {
+                    final long sum = columns[Math.max(x - 1, 0)] + columns[x] + columns[Math.min(x + 1, width - 1)];
+                    final int a = alpha ? div9((int) (sum >>> 36) & 0xFFF) : 0xFF;
+                    out[o] = (a << 24
+                            | div9((int) (sum >>> 24) & 0xFFF) << 16
+                            | div9((int) (sum >>> 12) & 0xFFF) << 8
+                            | div9((int) sum & 0xFFF)) ^ flip;
+                }
+            }
+        });
+        return blurred;
+    }
+
+    // Gray values of the band's rows are kept in a ring of three, so each is computed only once
+    private BufferedImage grayBoxBlur(final BufferedImage source, final boolean invert) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final BufferedImage blurred = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        final byte[] out = bytes(blurred);
+        final int outStride = stride(blurred);
+        final int flip = invert ? 0xFF : 0;
+        rowBands.forRows(source, (from, to) -> {
+            final int[][] ring = new int[3][width];
+            final int[] columns = new int[width];
+            lumaRow(source, Math.max(from - 1, 0), ring[Math.floorMod(from - 1, 3)]);
+            lumaRow(source, from, ring[from % 3]);
+            for (int y = from; y < to; y++) {
+                lumaRow(source, Math.min(y + 1, height - 1), ring[(y + 1) % 3]);
+                final int[] above = ring[Math.floorMod(y - 1, 3)];
+                final int[] row = ring[y % 3];
+                final int[] below = ring[(y + 1) % 3];
+                for (int x = 0; x < width; x++) {
+                    columns[x] = above[x] + row[x] + below[x];
+                }
+                for (int x = 0, o = y * outStride; x < width; x++, o++) {
+                    out[o] = (byte) (div9(columns[Math.max(x - 1, 0)] + columns[x] + columns[Math.min(x + 1, width - 1)]) ^ flip);
+                }
+            }
+        });
+        return blurred;
+    }
+
+    /** Gray values of one row of a {@link #direct} image. */
+    private static void lumaRow(final BufferedImage source, final int y, final int[] row) {
+        final int width = row.length;
+        final int stride = stride(source);
+        switch (source.getType()) {
+            case BufferedImage.TYPE_INT_RGB -> {
+                final int[] px = ints(source);
+                for (int x = 0, i = y * stride; x < width; x++, i++) {
+                    final int p = px[i];
+                    row[x] = luma((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF);
+                }
+            }
+            case BufferedImage.TYPE_INT_ARGB -> {
+                final int[] px = ints(source);
+                for (int x = 0, i = y * stride; x < width; x++, i++) {
+                    final int p = px[i];
+                    row[x] = div255(luma((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF) * (p >>> 24));
+                }
+            }
+            case BufferedImage.TYPE_BYTE_GRAY -> {
+                final byte[] px = bytes(source);
+                for (int x = 0, i = y * stride; x < width; x++, i++) {
+                    row[x] = px[i] & 0xFF;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                final byte[] px = bytes(source);
+                for (int x = 0, i = y * stride; x < width; x++, i += 3) {
+                    row[x] = luma(px[i + 2] & 0xFF, px[i + 1] & 0xFF, px[i] & 0xFF);
+                }
+            }
+            default -> {
+                final byte[] px = bytes(source);
+                for (int x = 0, i = y * stride; x < width; x++, i += 4) {
+                    row[x] = div255(luma(px[i + 3] & 0xFF, px[i + 2] & 0xFF, px[i + 1] & 0xFF) * (px[i] & 0xFF));
+                }
+            }
+        }
+    }
+
+    // Channels are spread 12 bits apart so nine 8-bit samples (at most 2295) sum without carrying
+    private static long spread(final int argb) {
+        return (long) (argb >>> 24) << 36
+                | (long) ((argb >> 16) & 0xFF) << 24
+                | (long) ((argb >> 8) & 0xFF) << 12
+                | argb & 0xFF;
+    }
+
+    private static int luma(final int r, final int g, final int b) {
+        return (77 * r + 150 * g + 29 * b + 128) >> 8;
+    }
+
+    private static int div255(final int value) {
+        return (value + 127) / 255;
+    }
+
+    private static int div9(final int value) {
+        return (value + 4) / 9;
+    }
+
+    /** Returns the image itself if its raster can be addressed directly, otherwise an int copy. */
+    static BufferedImage direct(final BufferedImage img) {
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY,
+                 BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                if (isUnshared(img.getRaster())) {
+                    return img;
+                }
+            }
+            default -> { }
+        }
+        return intImage(img);
+    }
+
+    /** Returns the image itself if it is an addressable int image, otherwise an int copy. */
+    static BufferedImage intImage(final BufferedImage img) {
+        final int type = img.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        if (img.getType() == type && isUnshared(img.getRaster())) {
+            return img;
+        }
+        final BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), type);
+        final Graphics2D g = copy.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    static int[] ints(final BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
+
+    static byte[] bytes(final BufferedImage img) {
+        return ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Array elements per row: ints for packed images, bytes for interleaved ones. */
+    static int stride(final BufferedImage img) {
+        final SampleModel model = img.getRaster().getSampleModel();
+        return model instanceof SinglePixelPackedSampleModel packed
+                ? packed.getScanlineStride()
+                : ((ComponentSampleModel) model).getScanlineStride();
+    }
+
+    // Sub-images share their parent's array at an offset, which the kernels do not account for
+    private static boolean isUnshared(final WritableRaster raster) {
+        return raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && raster.getDataBuffer().getNumBanks() == 1
+                && raster.getDataBuffer().getOffset() == 0;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.ImageWorker.Imaging;
+
+import com.example.ImageWorker.ImageWorkerExecutors;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Separable image resampler. Reductions of 3x or more first average whole blocks of pixels,
+ * which is cheap and alias-free, leaving at most a 3x step. The remaining step convolves
+ * rows and then columns with the chosen filter, widened by the scale factor when shrinking.
+ * Each output row band resamples only the source rows it needs horizontally, then filters them
+ * vertically, so no full-size intermediate is ever held. Images are processed as
+ * {@code TYPE_INT_RGB} or {@code TYPE_INT_ARGB}. Alpha is weighted in so transparent pixels do
+ * not bleed their colour into the result.
+ */
+@Component
+public class Resampler {
+
+    public enum Filter {
+        BILINEAR(1.0) {
+            @Override
+            double weight(final double x) {
+                final double distance = Math.abs(x);
+                return distance < 1.0 ? 1.0 - distance : 0.0;
+            }
+        },
+        LANCZOS3(3.0) {
+            @Override
+            double weight(final double x) {
+                final double distance = Math.abs(x);
+                if (distance < 1e-9) {
+                    return 1.0;
+                }
+                if (distance >= 3.0) {
+                    return 0.0;
+                }
+                final double px = Math.PI * distance;
+                return 3.0 * Math.sin(px) * Math.sin(px / 3.0) / (px * px);
+            }
+        };
+
+        private final double radius;
+
+        Filter(final double radius) {
+            this.radius = radius;
+        }
+
+        abstract double weight(double x);
+
+        public static Filter parse(final String name) {
+            if (name == null || name.isBlank()) {
+                return LANCZOS3;
+            }
+            return switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "bilinear" -> BILINEAR;
+                case "lanczos", "lanczos3" -> LANCZOS3;
+                default -> throw new IllegalArgumentException("Unknown resize filter: " + name);
+            };
+        }
+    }
+
+    private final RowBands rowBands;
+
+    public Resampler(final ImageWorkerExecutors executors) {
+        this.rowBands = new RowBands(executors.kernels());
+    }
+
+    /** Scales the image down to fit within the given box, keeping its aspect ratio. */
+    public BufferedImage fit(final BufferedImage img, final int maxWidth, final int maxHeight, final Filter filter) {
+        final int width = img.getWidth();
+        final int height = img.getHeight();
+        if (width <= maxWidth && height <= maxHeight) {
+            return img;
+        }
+        final double scale = Math.min((double) maxWidth / width, (double) maxHeight / height);
+        return resize(img, Math.max(1, (int) (width * scale)), Math.max(1, (int) (height * scale)), filter);
+    }
+
+    public BufferedImage resize(final BufferedImage img, final int width, final int height, final Filter filter) {
+        BufferedImage source = PixelKernels.intImage(img);
+        final int blockX = (int) (source.getWidth() / (width * 1.5));
+        final int blockY = (int) (source.getHeight() / (height * 1.5));
+        if (blockX >= 2 || blockY >= 2) {
+            source = averageBlocks(source, Math.max(blockX, 1), Math.max(blockY, 1));
+        }
+        if (source.getWidth() == width && source.getHeight() == height) {
+            return source;
+        }
+        return convolve(source, width, height, filter);
+    }
+
+    private BufferedImage averageBlocks(final BufferedImage source, final int blockX, final int blockY) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int outWidth = (width + blockX - 1) / blockX;
+        final int outHeight = (height + blockY - 1) / blockY;
+        final BufferedImage reduced = new BufferedImage(outWidth, outHeight, source.getType());
+        final int[] px = PixelKernels.ints(source);
+        final int[] out = PixelKernels.ints(reduced);
+        final int stride = PixelKernels.stride(source);
+        final int outStride = PixelKernels.stride(reduced);
+        final boolean alpha = source.getType() == BufferedImage.TYPE_INT_ARGB;
+
+        rowBands.forRows((long) width * height, outHeight, (from, to) -> {
+            final long[] sums = new long[outWidth * 4];
+            for (int oy = from; oy < to; oy++) {
+                Arrays.fill(sums, 0L);
+                final int top = oy * blockY;
+                final int bottom = Math.min(top + blockY, height);
+                for (int y = top; y < bottom; y++) {
+                    for (int ox = 0, x = 0, i = y * stride; ox < outWidth; ox++) {
+                        final int s = ox * 4;
+                        for (final int end = Math.min(x + blockX, width); x < end; x++, i++) {
+                            final int p = px[i];
+                            final int a = alpha ? p >>> 24 : 1;
+                            sums[s] += a;
+                            sums[s + 1] += (long) ((p >> 16) & 0xFF) * a;
+                            sums[s + 2] += (long) ((p >> 8) & 0xFF) * a;
+                            sums[s + 3] += (long) (p & 0xFF) * a;
+                        }
+                    }
+                }
+                for (int ox = 0, o = oy * outStride; ox < outWidth; ox++, o++) {
+                    final int s = ox * 4;
+                    final long weight = sums[s];
+                    final long pixels = (long) (bottom - top) * (Math.min((ox + 1) * blockX, width) - ox * blockX);
+                    if (weight == 0) {
+                        out[o] = 0;
+                        continue;
+                    }
+                    final int a = alpha ? (int) ((weight + pixels / 2) / pixels) : 0xFF;
+                    out[o] = a << 24
+                            | (int) ((sums[s + 1] + weight / 2) / weight) << 16
+                            | (int) ((sums[s + 2] + weight / 2) / weight) << 8
+                            | (int) ((sums[s + 3] + weight / 2) / weight);
+                }
+            }
+        });
+        return reduced;
+    }
+
+    private BufferedImage convolve(final BufferedImage source, final int width, final int height, final Filter filter) {
+        final int[] px = PixelKernels.ints(source);
+        final int stride = PixelKernels.stride(source);
+        final boolean alpha = source.getType() == BufferedImage.TYPE_INT_ARGB;
+        final Weights horizontal = Weights.of(source.getWidth(), width, filter);
+        final Weights vertical = Weights.of(source.getHeight(), height, filter);
+        final BufferedImage resized = new BufferedImage(width, height, source.getType());
+        final int[] out = PixelKernels.ints(resized);
+        final int outStride = PixelKernels.stride(resized);
+
+        final long work = (long) source.getHeight() * width * horizontal.taps + (long) height * width * vertical.taps;
+        rowBands.forRows(work, height, (from, to) -> {
+            final int top = vertical.start[from];
+            final int bottom = vertical.start[to - 1] + vertical.count[to - 1];
+            final int rowLength = width * 4;
+            final float[] line = new float[source.getWidth() * 4];
+            final float[] rows = new float[(bottom - top) * rowLength];
+            final float[] sums = new float[rowLength];
+
+            // Horizontal pass over just this band's source rows. Each row is unpacked once into
+            // four floats per pixel, with colour premultiplied by alpha when there is one.
+            for (int y = top, r = 0; y < bottom; y++, r += rowLength) {
+                unpack(px, y * stride, line, alpha);
+                for (int x = 0, c = r; x < width; x++, c += 4) {
+                    final int offset = x * horizontal.taps;
+                    float a = 0f, red = 0f, green = 0f, blue = 0f;
+                    for (int t = 0, i = horizontal.start[x] * 4, n = horizontal.count[x]; t < n; t++, i += 4) {
+                        final float w = horizontal.weights[offset + t];
+                        a += w * line[i];
+                        red += w * line[i + 1];
+                        green += w * line[i + 2];
+                        blue += w * line[i + 3];
+                    }
+                    rows[c] = a;
+                    rows[c + 1] = red;
+                    rows[c + 2] = green;
+                    rows[c + 3] = blue;
+                }
+            }
+
+            // Vertical pass accumulates whole rows, a flat loop the JIT can vectorize
+            for (int y = from; y < to; y++) {
+                Arrays.fill(sums, 0f);
+                final int offset = y * vertical.taps;
+                for (int t = 0, r = (vertical.start[y] - top) * rowLength, n = vertical.count[y]; t < n; t++, r += rowLength) {
+                    final float w = vertical.weights[offset + t];
+                    for (int k = 0; k < rowLength; k++) {
+                        sums[k] += w * rows[r + k];
+                    }
+                }
+                pack(sums, out, y * outStride, width, alpha);
+            }
+        });
+        return resized;
+    }
+
+    private static void unpack(final int[] px, final int from, final float[] line, final boolean alpha) {
+        for (int i = from, c = 0, end = line.length; c < end; i++, c += 4) {
+            final int p = px[i];
+            final float a = alpha ? p >>> 24 : 1f;
+            line[c] = a;
+            line[c + 1] = a * ((p >> 16) & 0xFF);
+            line[c + 2] = a * ((p >> 8) & 0xFF);
+            line[c + 3] = a * (p & 0xFF);
+        }
+    }
+
+    // Premultiplied sums are divided by their alpha; without alpha it is the weight total of one
+    private static void pack(final float[] sums, final int[] out, final int from, final int width, final boolean alpha) {
+        for (int x = 0, c = 0, o = from; x < width; x++, c += 4, o++) {
+            final float a = sums[c];
+            final float norm = a > 0f ? 1f / a : 0f;
+            out[o] = (alpha ? clamp(a) : 0xFF) << 24
+                    | clamp(sums[c + 1] * norm) << 16
+                    | clamp(sums[c + 2] * norm) << 8
+                    | clamp(sums[c + 3] * norm);
+        }
+    }
+
+    private static int clamp(final float value) {
+        final int rounded = Math.round(value);
+        return rounded < 0 ? 0 : Math.min(rounded, 255);
+    }
+
+    /** Normalized filter taps per output position, {@code taps} slots each. */
+    private static final class Weights {
+
+        private final int[] start;
+        private final int[] count;
+        private final float[] weights;
+        private final int taps;
+
+        private Weights(final int[] start, final int[] count, final float[] weights, final int taps) {
+            this.start = start;
+            this.count = count;
+            this.weights = weights;
+            this.taps = taps;
+        }
+
+        private static Weights of(final int sourceSize, final int targetSize, final Filter filter) {
+            final double scale = (double) targetSize / sourceSize;
+            final double filterScale = Math.min(scale, 1.0);
+            final double support = filter.radius / filterScale;
+            final int taps = (int) Math.ceil(support * 2) + 2;
+            final int[] start = new int[targetSize];
+            final int[] count = new int[targetSize];
+            final float[] weights = new float[targetSize * taps];
+
+            for (int i = 0; i < targetSize; i++) {
+                final double center = (i + 0.5) / scale;
+                final int left = Math.max(0, (int) Math.floor(center - support));
+                final int right = Math.min(sourceSize, (int) Math.ceil(center + support));
+                double total = 0;
+                int n = 0;
+                for (int j = left; j < right && n < taps; j++, n++) {
+                    final double weight = filter.weight((j + 0.5 - center) * filterScale);
+                    weights[i * taps + n] = (float) weight;
+                    total += weight;
+                }
+                if (total != 0) {
+                    for (int t = 0; t < n; t++) {
+                        weights[i * taps + t] /= (float) total;
+                    }
+                }
+                start[i] = left;
+                count[i] = n;
+            }
+            return new Weights(start, count, weights, taps);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ImageWorker.Imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a row kernel over an image, split into row bands on a fork-join pool once the work is
+ * large enough to be worth it. Bands are at least {@link #MIN_BAND_ROWS} rows so each one
+ * touches contiguous memory.
+ */
+final class RowBands {
+
+    static final long PARALLEL_THRESHOLD = 1L << 20;
+    private static final int MIN_BAND_ROWS = 16;
+
+    private final ForkJoinPool pool;
+
+    RowBands(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    void forRows(final BufferedImage img, final RowKernel kernel) {
+        forRows((long) img.getWidth() * img.getHeight(), img.getHeight(), kernel);
+    }
+
+    /** {@code work} is roughly the number of samples touched, compared against the threshold. */
+    void forRows(final long work, final int rows, final RowKernel kernel) {
+        if (work < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            kernel.apply(0, rows);
+            return;
+        }
+        final int grain = Math.max(MIN_BAND_ROWS, rows / (pool.getParallelism() * 4));
+        pool.invoke(new RowBand(kernel, 0, rows, grain));
+    }
+
+    @FunctionalInterface
+    interface RowKernel {
+        void apply(int fromRow, int toRow);
+    }
+
+    private static final class RowBand extends RecursiveAction {
+
+        private final RowKernel kernel;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        private RowBand(final RowKernel kernel, final int from, final int to, final int grain) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                kernel.apply(from, to);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            invokeAll(new RowBand(kernel, from, mid, grain), new RowBand(kernel, mid, to, grain));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ImageWorker.Imaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The transformations a task asked for, compiled into the order {@link ImageTransformer} runs
+ * them. Resize always runs first so every later pass touches the fewest pixels. Grayscale,
+ * invert and blur are then fused into a single pass over the image, and the watermark is drawn
+ * last, in place.
+ */
+public record TransformPlan(Resize resize, boolean grayscale, boolean invert, boolean blur, String watermark) {
+
+    public static final int DEFAULT_MAX_WIDTH = 1024;
+    public static final int DEFAULT_MAX_HEIGHT = 1024;
+
+    public record Resize(int maxWidth, int maxHeight, Resampler.Filter filter) {}
+
+    public static TransformPlan compile(final Map<String, Object> options) {
+        final Map<String, Object> opts = options == null ? Map.of() : options;
+        final Resize resize = getBoolean(opts, "resize")
+                ? new Resize(getPositiveInt(opts, "maxWidth", DEFAULT_MAX_WIDTH),
+                        getPositiveInt(opts, "maxHeight", DEFAULT_MAX_HEIGHT),
+                        Resampler.Filter.parse(opts.get("resizeFilter") == null ? null : opts.get("resizeFilter").toString()))
+                : null;
+        final Object watermark = opts.get("watermark");
+        return new TransformPlan(resize, getBoolean(opts, "grayscale"), getBoolean(opts, "invert"),
+                getBoolean(opts, "blur"), watermark == null ? null : watermark.toString());
+    }
+
+    public boolean isEmpty() {
+        return resize == null && !grayscale && !invert && !blur && watermark == null;
+    }
+
+    /** One-line summary of the passes, e.g. {@code resize(1024x1024 LANCZOS3) -> blur+grayscale -> watermark}. */
+    public String describe() {
+        final List<String> passes = new ArrayList<>();
+        if (resize != null) {
+            passes.add("resize(" + resize.maxWidth() + "x" + resize.maxHeight() + " " + resize.filter() + ")");
+        }
+        final List<String> fused = new ArrayList<>();
+        if (blur) fused.add("blur");
+        if (grayscale) fused.add("grayscale");
+        if (invert) fused.add("invert");
+        if (!fused.isEmpty()) {
+            passes.add(String.join("+", fused));
+        }
+        if (watermark != null) {
+            passes.add("watermark");
+        }
+        return passes.isEmpty() ? "none" : String.join(" -> ", passes);
+    }
+
+    private static boolean getBoolean(final Map<String, Object> options, final String key) {
+        final Object val = options.get(key);
+        return val != null && Boolean.parseBoolean(val.toString());
+    }
+
+    private static int getPositiveInt(final Map<String, Object> options, final String key, final int defaultValue) {
+        final Object val = options.get(key);
+        if (val == null) {
+            return defaultValue;
+        }
+        try {
+            final int parsed = val instanceof Number number ? number.intValue() : Integer.parseInt(val.toString().trim());
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // falls through to the error below
+        }
+        throw new IllegalArgumentException("Option " + key + " must be a positive integer, got: " + val);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ImageWorker;
+
+import com.example.ImageWorker.Clients.QueueServiceClient;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class LeaseHeartbeat {
+
+    private final QueueServiceClient queueServiceClient;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalSeconds;
+    private final long extendSeconds;
+
+    public LeaseHeartbeat(final QueueServiceClient queueServiceClient,
+                          @Value("${queue.lease.heartbeat-interval-seconds:30}") final long intervalSeconds,
+                          @Value("${queue.lease.extend-seconds:90}") final long extendSeconds) {
+        this.queueServiceClient = queueServiceClient;
+        this.intervalSeconds = intervalSeconds;
+        this.extendSeconds = extendSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Handle start(final String taskId, final String receipt) {
+        final ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(
+                () -> extend(taskId, receipt), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return () -> future.cancel(false);
+    }
+
+    private void extend(final String taskId, final String receipt) {
+        try {
+            queueServiceClient.extendLease(taskId, receipt, extendSeconds);
+            log.debug("Extended lease of task {} by {}s", taskId, extendSeconds);
+        } catch (Exception e) {
+            log.warn("Failed to extend lease of task {}: {}", taskId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public interface Handle extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -2,76 +2,156 @@ package com.example.ImageWorker;
 
 import com.example.ImageWorker.Clients.QueueServiceClient;
 import com.example.shared.Task;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+// One claim loop feeds the image pipeline. A task's lease starts when it is claimed, so the loop
+// only claims as many tasks as there are free in-flight slots.
 @Slf4j
 @Component
 public class Poller {
 
     private final QueueServiceClient queueServiceClient;
     private final ImageWorkerService imageWorkerService;
+    private final LeaseHeartbeat leaseHeartbeat;
+    private final ImageWorkerExecutors executors;
+    private final long claimWaitSeconds;
+    private final long pollDelayMs;
+    private final long drainTimeoutSeconds;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final Thread claimLoop;
+    private volatile boolean running = true;
 
     public Poller(final QueueServiceClient queueServiceClient,
-                  final ImageWorkerService imageWorkerService) {
+                  final ImageWorkerService imageWorkerService,
+                  final LeaseHeartbeat leaseHeartbeat,
+                  final ImageWorkerExecutors executors,
+                  @Value("${queue.claim.wait-seconds:20}") final long claimWaitSeconds,
+                  @Value("${queue.poll.delay-ms:250}") final long pollDelayMs,
+                  @Value("${queue.worker.drain-timeout-seconds:60}") final long drainTimeoutSeconds) {
         this.queueServiceClient = queueServiceClient;
         this.imageWorkerService = imageWorkerService;
+        this.leaseHeartbeat = leaseHeartbeat;
+        this.executors = executors;
+        this.claimWaitSeconds = claimWaitSeconds;
+        this.pollDelayMs = pollDelayMs;
+        this.drainTimeoutSeconds = drainTimeoutSeconds;
+
+        this.maxInFlight = executors.maxInFlight();
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.claimLoop = new Thread(this::claimLoop, "image-claim-loop");
+        log.info("Poller initialized with up to {} task(s) in flight", this.maxInFlight);
     }
 
-    @Scheduled(fixedDelay = 5000)
-    public void pollQueue() {
-        log.info("Polling queue for image tasks");
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        claimLoop.start();
+    }
 
-        try {
-            log.debug("Calling queueServiceClient.getFrontTask()");
-            final Task task = queueServiceClient.getFrontTask();
+    // Stops claiming and lets the claim in progress and every claimed task finish. Tasks still
+    // running at the timeout are abandoned; their leases expire and they are retried.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        claimLoop.join(TimeUnit.SECONDS.toMillis(claimWaitSeconds + drainTimeoutSeconds));
+        if (!inFlight.tryAcquire(maxInFlight, drainTimeoutSeconds, TimeUnit.SECONDS)) {
+            log.warn("{} image task(s) still running after {}s drain, abandoning them",
+                    maxInFlight - inFlight.availablePermits(), drainTimeoutSeconds);
+            return;
+        }
+        log.info("Poller drained");
+    }
 
-            if (task == null) {
-                log.debug("No tasks found in queue");
+    private void claimLoop() {
+        while (running) {
+            int permits = 0;
+            try {
+                inFlight.acquire();
+                permits = 1;
+                if (!running) {
+                    inFlight.release(permits);
+                    return;
+                }
+                permits += drainPermits();
+                final List<Task> tasks = queueServiceClient.claimTasks("image", permits, claimWaitSeconds);
+                final int claimed = tasks == null ? 0 : tasks.size();
+                if (claimed > 0) {
+                    log.info("Claimed {} image task(s)", claimed);
+                    for (final Task task : tasks) {
+                        processTask(task);
+                    }
+                }
+                inFlight.release(permits - claimed);
+                permits = 0;
+                if (claimed == 0) {
+                    log.debug("No tasks found in queue");
+                    TimeUnit.MILLISECONDS.sleep(pollDelayMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 return;
+            } catch (Exception e) {
+                log.error("Error while polling image queue: {}", e.getMessage(), e);
+                inFlight.release(permits);
+                sleepQuietly();
             }
+        }
+    }
 
-            log.info("Found task - ID: {}, Type: {}", task.getId(), task.getType());
-
-            if ("image".equalsIgnoreCase(task.getType())) {
-                log.info("Processing image task {}", task.getId());
+    private int drainPermits() {
+        int extra = 0;
+        while (extra < maxInFlight - 1 && inFlight.tryAcquire()) {
+            extra++;
+        }
+        return extra;
+    }
 
-                log.debug("Calling queueServiceClient.popFrontTask() for task {}", task.getId());
-                final Task dequeued = queueServiceClient.popFrontTask(task.getId());
+    private void processTask(final Task task) {
+        log.info("Task claimed successfully - ID: {}, Type: {}", task.getId(), task.getType());
+        final LeaseHeartbeat.Handle heartbeat = leaseHeartbeat.start(task.getId(), task.getReceipt());
+        final CompletableFuture<Task> processing;
+        try {
+            processing = imageWorkerService.process(task);
+        } catch (Exception e) {
+            log.error("Error while starting image task {}: {}", task.getId(), e.getMessage(), e);
+            heartbeat.close();
+            inFlight.release();
+            return;
+        }
 
-                if (dequeued == null) {
-                    log.warn("Failed to dequeue task {}", task.getId());
+        // The ack is a blocking call, so it runs on the I/O pool rather than wherever the pipeline ended
+        processing.whenCompleteAsync((result, e) -> {
+            try {
+                heartbeat.close();
+                if (e != null) {
                     return;
                 }
-
-                log.info("Task dequeued successfully - ID: {}", dequeued.getId());
-
-                final var payload = dequeued.getPayload();
-                final String s3Key = (String) payload.get("key");
-                final String fileName = (String) payload.get("fileName");
-
-                @SuppressWarnings("unchecked")
-                final Map<String, Object> options = (Map<String, Object>) payload.get("options");
-
-                log.debug("Task details - S3 Key: {}, File: {}, Options: {}", s3Key, fileName, options);
-
-                log.info("Starting image processing for task {}", dequeued.getId());
-                imageWorkerService.process(dequeued);
-                log.info("Image processing completed successfully for task {}", dequeued.getId());
-
-                log.info("Marking task {} as completed", dequeued.getId());
-                queueServiceClient.markTaskAsCompleted(dequeued);
-                log.info("Task {} marked as completed", dequeued.getId());
-
-            } else {
-                log.info("Skipping non-image task type: {}", task.getType());
+                log.info("Marking task {} as completed", task.getId());
+                queueServiceClient.ack(task.getId(), task.getReceipt(), task.getResultUrl());
+                log.info("Task {} marked as completed", task.getId());
+            } catch (Exception ackError) {
+                log.error("Failed to ack image task {}: {}", task.getId(), ackError.getMessage(), ackError);
+            } finally {
+                inFlight.release();
             }
+        }, executors.io());
+    }
 
-        } catch (Exception e) {
-            log.error("Error while polling image queue: {}", e.getMessage(), e);
+    private void sleepQuietly() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.max(pollDelayMs, 1000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
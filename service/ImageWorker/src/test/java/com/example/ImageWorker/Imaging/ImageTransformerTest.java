@@ -0,0 +1,127 @@
+package com.example.ImageWorker.Imaging;
+
+import com.example.ImageWorker.ImageWorkerExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageTransformerTest {
+
+    private final ImageWorkerExecutors executors = new ImageWorkerExecutors(2, 0);
+    private final PixelKernels pixelKernels = new PixelKernels(executors);
+    private final ImageTransformer transformer = new ImageTransformer(pixelKernels, new Resampler(executors));
+
+    @AfterEach
+    void shutdown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void resizedTransparentPngEncodesAsJpeg() throws IOException {
+        final BufferedImage png = readBack(translucentPng(2400, 1600));
+
+        final BufferedImage result = transformer.apply(png, TransformPlan.compile(Map.of("resize", true)));
+
+        assertFalse(result.getColorModel().hasAlpha());
+        assertEquals(1024, result.getWidth());
+        assertEquals(682, result.getHeight());
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(encodeJpeg(result))));
+    }
+
+    @Test
+    void transparentPngWithoutOptionsEncodesAsJpeg() throws IOException {
+        final BufferedImage png = readBack(translucentPng(300, 200));
+
+        final BufferedImage result = transformer.apply(png, TransformPlan.compile(Map.of("watermark", "wm", "blur", true)));
+
+        assertFalse(result.getColorModel().hasAlpha());
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(encodeJpeg(result))));
+    }
+
+    @Test
+    void flattenCompositesOverBlackLikeDrawImage() {
+        final BufferedImage argb = new BufferedImage(5, 3, BufferedImage.TYPE_INT_ARGB);
+        argb.setRGB(0, 0, 0x80FFFFFF);
+        argb.setRGB(1, 0, 0x00FF0000);
+        argb.setRGB(2, 0, 0xFF336699);
+        argb.setRGB(3, 1, 0x40C08020);
+
+        final BufferedImage flat = pixelKernels.flatten(argb);
+
+        final BufferedImage expected = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = expected.createGraphics();
+        g.drawImage(argb, 0, 0, null);
+        g.dispose();
+        assertEquals(BufferedImage.TYPE_INT_RGB, flat.getType());
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 5; x++) {
+                assertTrue(maxChannelDiff(expected.getRGB(x, y), flat.getRGB(x, y)) <= 1, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void flattenReturnsOpaqueImagesUnchanged() {
+        final BufferedImage rgb = new BufferedImage(4, 4, BufferedImage.TYPE_3BYTE_BGR);
+        assertSame(rgb, pixelKernels.flatten(rgb));
+    }
+
+    private static byte[] translucentPng(final int width, final int height) throws IOException {
+        final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = img.createGraphics();
+        g.setColor(new Color(30, 120, 220, 140));
+        g.fillOval(width / 4, height / 4, width / 2, height / 2);
+        g.dispose();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    private static BufferedImage readBack(final byte[] png) throws IOException {
+        final BufferedImage img = ImageIO.read(new ByteArrayInputStream(png));
+        assertTrue(img.getColorModel().hasAlpha());
+        return img;
+    }
+
+    // Same writer setup as ImageWorkerService.compressToJPEG, which rejects images with alpha
+    private static byte[] encodeJpeg(final BufferedImage img) throws IOException {
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(os)) {
+            writer.setOutput(ios);
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.85f);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return os.toByteArray();
+    }
+
+    private static int maxChannelDiff(final int a, final int b) {
+        int max = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            max = Math.max(max, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+        }
+        return max;
+    }
+}
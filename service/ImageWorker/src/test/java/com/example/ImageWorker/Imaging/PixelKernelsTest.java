@@ -0,0 +1,266 @@
+package com.example.ImageWorker.Imaging;
+
+import com.example.ImageWorker.ImageWorkerExecutors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PixelKernelsTest {
+
+    private final ImageWorkerExecutors executors = new ImageWorkerExecutors(4, 0);
+    private final PixelKernels pixelKernels = new PixelKernels(executors);
+
+    @AfterEach
+    void shutdown() {
+        executors.shutdown();
+    }
+
+    // The previous pipeline drew onto a gray image and blurred with a zero-filled ConvolveOp; the
+    // fused pass must match it everywhere ConvolveOp had full input. Its Color-based inversion went
+    // through getRGB/setRGB, which on a gray image applies the sRGB curve both ways (128 became 14),
+    // so the gray result is compared against a plain 255 - v instead.
+    @Test
+    void fusedGrayInvertBlurMatchesPreviousPipelineInsideTheEdges() {
+        final BufferedImage img = noise(37, 23, BufferedImage.TYPE_INT_RGB, 1);
+
+        final BufferedImage old = oldBlur(oldGray(img));
+        final BufferedImage fused = pixelKernels.boxBlur(img, true, true);
+
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, fused.getType());
+        for (int y = 1; y < img.getHeight() - 1; y++) {
+            for (int x = 1; x < img.getWidth() - 1; x++) {
+                assertClose(255 - gray(old, x, y), gray(fused, x, y), 1, x, y);
+            }
+        }
+    }
+
+    @Test
+    void fusedInvertBlurMatchesPreviousPipelineForRgbInsideTheEdges() {
+        final BufferedImage img = noise(29, 17, BufferedImage.TYPE_INT_RGB, 9);
+
+        final BufferedImage old = oldBlur(oldInvert(img));
+        final BufferedImage fused = pixelKernels.boxBlur(img, false, true);
+
+        for (int y = 1; y < img.getHeight() - 1; y++) {
+            for (int x = 1; x < img.getWidth() - 1; x++) {
+                assertTrue(maxChannelDiff(old.getRGB(x, y), fused.getRGB(x, y)) <= 1, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void grayBlurRepeatsEdgeRowsAndColumns() {
+        final BufferedImage img = noise(19, 11, BufferedImage.TYPE_3BYTE_BGR, 2);
+        final int[][] expected = meanWithRepeatedEdges(grayPlane(oldGray(img)));
+
+        final BufferedImage blurred = pixelKernels.boxBlur(img, true, false);
+
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                assertClose(expected[y][x], gray(blurred, x, y), 1, x, y);
+            }
+        }
+    }
+
+    @Test
+    void grayInputIsBlurredWithoutConversion() {
+        final BufferedImage img = oldGray(noise(16, 9, BufferedImage.TYPE_INT_RGB, 3));
+        final int[][] expected = meanWithRepeatedEdges(grayPlane(img));
+
+        final BufferedImage blurred = pixelKernels.boxBlur(img, false, true);
+
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, blurred.getType());
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                assertEquals(255 - expected[y][x], gray(blurred, x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void argbBlurAveragesEveryChannelAndRepeatsEdges() {
+        final BufferedImage img = noise(13, 7, BufferedImage.TYPE_INT_ARGB, 4);
+
+        final BufferedImage blurred = pixelKernels.boxBlur(img, false, false);
+
+        assertEquals(BufferedImage.TYPE_INT_ARGB, blurred.getType());
+        for (int shift = 0; shift < 32; shift += 8) {
+            final int[][] expected = meanWithRepeatedEdges(channel(img, shift));
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    assertEquals(expected[y][x], (blurred.getRGB(x, y) >>> shift) & 0xFF, "pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    // Large enough to be split into row bands; each band must still read the rows either side of it
+    @Test
+    void bandedGrayBlurMatchesReferenceAcrossBandBoundaries() {
+        final BufferedImage img = noise(1100, 1000, BufferedImage.TYPE_INT_RGB, 5);
+        assertTrue((long) img.getWidth() * img.getHeight() >= RowBands.PARALLEL_THRESHOLD);
+        final int[][] expected = meanWithRepeatedEdges(grayPlane(oldGray(img)));
+
+        final BufferedImage blurred = pixelKernels.boxBlur(img, true, false);
+
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                assertClose(expected[y][x], gray(blurred, x, y), 1, x, y);
+            }
+        }
+    }
+
+    @Test
+    void grayscaleMatchesDrawImageForRgbAndTranslucentInput() {
+        for (final int type : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB}) {
+            final BufferedImage img = noise(21, 12, type, 6);
+            final BufferedImage expected = oldGray(img);
+
+            final BufferedImage gray = pixelKernels.grayscale(img, false);
+
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    assertClose(gray(expected, x, y), gray(gray, x, y), 1, x, y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void invertKeepsAlphaAndFlipsColourChannels() {
+        for (final int type : new int[] {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_3BYTE_BGR}) {
+            final BufferedImage img = noise(9, 5, type, 7);
+            final int[][] before = new int[img.getHeight()][img.getWidth()];
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    before[y][x] = img.getRGB(x, y);
+                }
+            }
+
+            final BufferedImage inverted = pixelKernels.invert(img);
+
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    assertEquals(before[y][x] ^ 0x00FFFFFF, inverted.getRGB(x, y), "pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void subImagesAreCopiedRatherThanReadAtTheParentOffset() {
+        final BufferedImage parent = noise(20, 20, BufferedImage.TYPE_INT_RGB, 8);
+        final BufferedImage sub = parent.getSubimage(5, 5, 6, 4);
+        final int[][] expected = meanWithRepeatedEdges(grayPlane(oldGray(sub)));
+
+        final BufferedImage blurred = pixelKernels.boxBlur(sub, true, false);
+
+        for (int y = 0; y < sub.getHeight(); y++) {
+            for (int x = 0; x < sub.getWidth(); x++) {
+                assertClose(expected[y][x], gray(blurred, x, y), 1, x, y);
+            }
+        }
+    }
+
+    private static BufferedImage noise(final int width, final int height, final int type, final long seed) {
+        final Random random = new Random(seed);
+        final BufferedImage img = new BufferedImage(width, height, type);
+        final boolean alpha = img.getColorModel().hasAlpha();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt() | (alpha ? 0 : 0xFF000000));
+            }
+        }
+        return img;
+    }
+
+    private static BufferedImage oldGray(final BufferedImage original) {
+        final BufferedImage gray = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        final Graphics2D g = gray.createGraphics();
+        g.drawImage(original, 0, 0, null);
+        g.dispose();
+        return gray;
+    }
+
+    private static BufferedImage oldInvert(final BufferedImage img) {
+        final BufferedImage inverted = new BufferedImage(img.getWidth(), img.getHeight(), img.getType());
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                final Color col = new Color(img.getRGB(x, y), true);
+                inverted.setRGB(x, y, new Color(255 - col.getRed(), 255 - col.getGreen(), 255 - col.getBlue()).getRGB());
+            }
+        }
+        return inverted;
+    }
+
+    private static BufferedImage oldBlur(final BufferedImage img) {
+        final float[] kernel = new float[9];
+        Arrays.fill(kernel, 1 / 9f);
+        return new ConvolveOp(new Kernel(3, 3, kernel)).filter(img, null);
+    }
+
+    private static int[][] grayPlane(final BufferedImage gray) {
+        final int[][] plane = new int[gray.getHeight()][gray.getWidth()];
+        for (int y = 0; y < gray.getHeight(); y++) {
+            for (int x = 0; x < gray.getWidth(); x++) {
+                plane[y][x] = gray(gray, x, y);
+            }
+        }
+        return plane;
+    }
+
+    private static int[][] channel(final BufferedImage img, final int shift) {
+        final int[][] plane = new int[img.getHeight()][img.getWidth()];
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                plane[y][x] = (img.getRGB(x, y) >>> shift) & 0xFF;
+            }
+        }
+        return plane;
+    }
+
+    private static int[][] meanWithRepeatedEdges(final int[][] plane) {
+        final int height = plane.length;
+        final int width = plane[0].length;
+        final int[][] mean = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        sum += plane[Math.min(Math.max(y + dy, 0), height - 1)][Math.min(Math.max(x + dx, 0), width - 1)];
+                    }
+                }
+                mean[y][x] = (sum + 4) / 9;
+            }
+        }
+        return mean;
+    }
+
+    private static int gray(final BufferedImage img, final int x, final int y) {
+        return img.getRaster().getSample(x, y, 0);
+    }
+
+    private static int maxChannelDiff(final int a, final int b) {
+        int max = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            max = Math.max(max, Math.abs(((a >> shift) & 0xFF) - ((b >> shift) & 0xFF)));
+        }
+        return max;
+    }
+
+    private static void assertClose(final int expected, final int actual, final int tolerance, final int x, final int y) {
+        assertTrue(Math.abs(expected - actual) <= tolerance,
+                "pixel " + x + "," + y + ": expected " + expected + " but was " + actual);
+    }
+}
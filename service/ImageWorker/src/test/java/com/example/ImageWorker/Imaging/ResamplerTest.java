@@ -0,0 +1,135 @@
+package com.example.ImageWorker.Imaging;
+
+import com.example.ImageWorker.ImageWorkerExecutors;
+import com.example.ImageWorker.Imaging.Resampler.Filter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResamplerTest {
+
+    private final ImageWorkerExecutors executors = new ImageWorkerExecutors(4, 0);
+    private final Resampler resampler = new Resampler(executors);
+
+    @AfterEach
+    void shutdown() {
+        executors.shutdown();
+    }
+
+    @Test
+    void fitKeepsAspectRatioAndLeavesSmallImagesAlone() {
+        final BufferedImage wide = filled(2000, 500, BufferedImage.TYPE_INT_RGB, 0xFF808080);
+        final BufferedImage fitted = resampler.fit(wide, 1024, 1024, Filter.LANCZOS3);
+        assertEquals(1024, fitted.getWidth());
+        assertEquals(256, fitted.getHeight());
+
+        final BufferedImage small = filled(300, 200, BufferedImage.TYPE_INT_RGB, 0xFF808080);
+        assertSame(small, resampler.fit(small, 1024, 1024, Filter.LANCZOS3));
+    }
+
+    // Covers the plain convolution (under 3x) and the block-averaging pre-pass (3x and more)
+    @Test
+    void uniformImagesStayUniform() {
+        for (final Filter filter : Filter.values()) {
+            for (final int[] size : new int[][] {{150, 90}, {45, 30}, {7, 3}}) {
+                final BufferedImage img = filled(301, 211, BufferedImage.TYPE_INT_RGB, 0xFF336699);
+                final BufferedImage resized = resampler.resize(img, size[0], size[1], filter);
+
+                assertEquals(size[0], resized.getWidth());
+                assertEquals(size[1], resized.getHeight());
+                for (int y = 0; y < resized.getHeight(); y++) {
+                    for (int x = 0; x < resized.getWidth(); x++) {
+                        assertEquals(0xFF336699, resized.getRGB(x, y), filter + " " + size[0] + "x" + size[1] + " pixel " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void transparentPixelsDoNotBleedTheirColour() {
+        for (final int[] size : new int[][] {{60, 40}, {12, 8}}) {
+            final BufferedImage img = new BufferedImage(120, 80, BufferedImage.TYPE_INT_ARGB);
+            for (int y = 0; y < img.getHeight(); y++) {
+                for (int x = 0; x < img.getWidth(); x++) {
+                    img.setRGB(x, y, x < 60 ? 0xFF0000FF : 0x00FF0000);
+                }
+            }
+
+            final BufferedImage resized = resampler.resize(img, size[0], size[1], Filter.LANCZOS3);
+
+            assertEquals(BufferedImage.TYPE_INT_ARGB, resized.getType());
+            for (int y = 0; y < resized.getHeight(); y++) {
+                for (int x = 0; x < resized.getWidth(); x++) {
+                    final int p = resized.getRGB(x, y);
+                    if (p >>> 24 > 0) {
+                        assertEquals(0, (p >> 16) & 0xFF, "red at " + x + "," + y);
+                        assertTrue((p & 0xFF) >= 254, "blue at " + x + "," + y);
+                    }
+                }
+            }
+            assertEquals(0xFF, resized.getRGB(0, 0) >>> 24);
+            assertEquals(0, resized.getRGB(size[0] - 1, 0) >>> 24);
+        }
+    }
+
+    // Every row of a horizontal gradient must come out the same (up to float rounding), including
+    // rows on either side of a band boundary, and the gradient must keep rising
+    @Test
+    void bandedResizeOfAGradientKeepsRowsConsistent() {
+        final BufferedImage img = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                final int v = x * 255 / (img.getWidth() - 1);
+                img.setRGB(x, y, 0xFF000000 | v << 16 | v << 8 | v);
+            }
+        }
+
+        for (final int[] size : new int[][] {{1024, 682}, {700, 466}}) {
+            final BufferedImage resized = resampler.resize(img, size[0], size[1], Filter.LANCZOS3);
+            for (int y = 1; y < resized.getHeight(); y++) {
+                for (int x = 0; x < resized.getWidth(); x++) {
+                    assertTrue(Math.abs((resized.getRGB(x, 0) & 0xFF) - (resized.getRGB(x, y) & 0xFF)) <= 1,
+                            "pixel " + x + "," + y);
+                }
+            }
+            for (int x = 1; x < resized.getWidth(); x++) {
+                assertTrue((resized.getRGB(x, 0) & 0xFF) >= (resized.getRGB(x - 1, 0) & 0xFF), "column " + x);
+            }
+        }
+    }
+
+    @Test
+    void byteImagesAreResampledAsIntImages() {
+        final BufferedImage img = filled(90, 60, BufferedImage.TYPE_3BYTE_BGR, 0xFF204060);
+        final BufferedImage resized = resampler.resize(img, 40, 25, Filter.BILINEAR);
+
+        assertEquals(BufferedImage.TYPE_INT_RGB, resized.getType());
+        assertEquals(0xFF204060, resized.getRGB(20, 12));
+    }
+
+    @Test
+    void parsesFilterNames() {
+        assertEquals(Filter.LANCZOS3, Filter.parse(null));
+        assertEquals(Filter.LANCZOS3, Filter.parse(" "));
+        assertEquals(Filter.LANCZOS3, Filter.parse("Lanczos"));
+        assertEquals(Filter.BILINEAR, Filter.parse(" BILINEAR "));
+        assertThrows(IllegalArgumentException.class, () -> Filter.parse("bicubic"));
+    }
+
+    private static BufferedImage filled(final int width, final int height, final int type, final int argb) {
+        final BufferedImage img = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, argb);
+            }
+        }
+        return img;
+    }
+}
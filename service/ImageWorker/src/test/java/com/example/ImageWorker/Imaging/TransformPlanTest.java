@@ -0,0 +1,88 @@
+package com.example.ImageWorker.Imaging;
+
+import com.example.ImageWorker.Imaging.Resampler.Filter;
+import com.example.ImageWorker.Imaging.TransformPlan.Resize;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransformPlanTest {
+
+    @Test
+    void missingOrEmptyOptionsCompileToAnEmptyPlan() {
+        final List<Map<String, Object>> cases = Arrays.asList(null, Map.of(), Map.of("resize", false, "blur", "no"));
+        for (final Map<String, Object> options : cases) {
+            final TransformPlan plan = TransformPlan.compile(options);
+            assertTrue(plan.isEmpty());
+            assertEquals("none", plan.describe());
+        }
+    }
+
+    @Test
+    void compilesEveryPassInRunOrder() {
+        final Map<String, Object> options = new HashMap<>();
+        options.put("resize", true);
+        options.put("maxWidth", 800);
+        options.put("maxHeight", " 600 ");
+        options.put("resizeFilter", "bilinear");
+        options.put("grayscale", "TRUE");
+        options.put("invert", true);
+        options.put("blur", "true");
+        options.put("watermark", 2024);
+
+        final TransformPlan plan = TransformPlan.compile(options);
+
+        assertEquals(new Resize(800, 600, Filter.BILINEAR), plan.resize());
+        assertTrue(plan.grayscale());
+        assertTrue(plan.invert());
+        assertTrue(plan.blur());
+        assertEquals("2024", plan.watermark());
+        assertFalse(plan.isEmpty());
+        assertEquals("resize(800x600 BILINEAR) -> blur+grayscale+invert -> watermark", plan.describe());
+    }
+
+    @Test
+    void resizeDefaultsToTheBoundingBoxAndLanczos() {
+        final TransformPlan plan = TransformPlan.compile(Map.of("resize", "true"));
+
+        assertEquals(new Resize(TransformPlan.DEFAULT_MAX_WIDTH, TransformPlan.DEFAULT_MAX_HEIGHT, Filter.LANCZOS3),
+                plan.resize());
+        assertEquals("resize(1024x1024 LANCZOS3)", plan.describe());
+    }
+
+    @Test
+    void watermarkAloneIsNotEmpty() {
+        final TransformPlan plan = TransformPlan.compile(Map.of("watermark", "wm"));
+
+        assertNull(plan.resize());
+        assertFalse(plan.isEmpty());
+        assertEquals("watermark", plan.describe());
+    }
+
+    @Test
+    void rejectsInvalidResizeOptions() {
+        for (final Object maxWidth : new Object[] {0, -5, "wide", "1.5"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> TransformPlan.compile(Map.of("resize", true, "maxWidth", maxWidth)), String.valueOf(maxWidth));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> TransformPlan.compile(Map.of("resize", true, "resizeFilter", "bicubic")));
+    }
+
+    @Test
+    void resizeOptionsAreIgnoredWithoutResize() {
+        final TransformPlan plan = TransformPlan.compile(Map.of("maxWidth", "wide", "resizeFilter", "bicubic"));
+
+        assertNull(plan.resize());
+        assertTrue(plan.isEmpty());
+    }
+}
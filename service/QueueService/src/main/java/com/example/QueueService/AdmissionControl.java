@@ -0,0 +1,136 @@
+package com.example.QueueService;
+
+import com.example.QueueService.Config.AdmissionProperties;
+import com.example.QueueService.Engine.QueueEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class AdmissionControl {
+
+    private final QueueEngine queueEngine;
+    private final AdmissionProperties properties;
+    private final QueueMetrics queueMetrics;
+    private final Map<String, DepthSample> depths = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public AdmissionControl(final QueueEngine queueEngine, final AdmissionProperties properties,
+                            final QueueMetrics queueMetrics) {
+        this.queueEngine = queueEngine;
+        this.properties = properties;
+        this.queueMetrics = queueMetrics;
+        log.info("AdmissionControl initialized (max depth={}, client rate={}/s, burst={})",
+                properties.getMaxDepth(), properties.getClientRatePerSecond(), properties.getClientBurst());
+    }
+
+    // Depth is checked before the client's tokens are taken, so a rejection for a full queue
+    // does not also eat into the client's rate.
+    public void admit(final String clientId, final Map<String, Integer> countsByType) {
+        for (final Map.Entry<String, Integer> count : countsByType.entrySet()) {
+            final String type = normalizeType(count.getKey());
+            final long maxDepth = properties.maxDepthFor(type);
+            if (maxDepth > 0 && !depthSample(type).tryAdd(count.getValue(), maxDepth)) {
+                log.warn("Rejected {} task(s) of type '{}' from client '{}': queue is full", count.getValue(), type, clientId);
+                queueMetrics.rejected(type, "full", count.getValue());
+                throw new AdmissionRejectedException("Queue for type '" + type + "' is full", properties.getFullRetryAfter());
+            }
+        }
+
+        if (properties.getClientRatePerSecond() <= 0) {
+            return;
+        }
+        final int total = countsByType.values().stream().mapToInt(Integer::intValue).sum();
+        final long waitNanos = buckets.computeIfAbsent(clientId == null ? "" : clientId,
+                key -> new TokenBucket(properties.getClientRatePerSecond(), Math.max(1, properties.getClientBurst())))
+                .tryAcquire(total);
+        if (waitNanos > 0) {
+            log.warn("Rejected {} task(s) from client '{}': rate limit exceeded", total, clientId);
+            countsByType.forEach((type, count) -> queueMetrics.rejected(type, "throttled", count));
+            throw new AdmissionRejectedException("Rate limit exceeded", Duration.ofNanos(waitNanos));
+        }
+    }
+
+    // A bucket that has refilled to its burst behaves exactly like a new one, so it can be dropped
+    @Scheduled(fixedDelayString = "${queue.admission.bucket-eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        buckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    private DepthSample depthSample(final String type) {
+        final long now = System.nanoTime();
+        final DepthSample sample = depths.get(type);
+        if (sample != null && now - sample.sampledAt < properties.getDepthSampleInterval().toNanos()) {
+            return sample;
+        }
+        final DepthSample fresh = new DepthSample(queueEngine.depth(type), now);
+        depths.put(type, fresh);
+        return fresh;
+    }
+
+    private static String normalizeType(final String type) {
+        return type == null || type.isBlank() ? "default" : type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // The backend depth is sampled at most once per interval; admissions in between are counted
+    // locally so a burst inside one interval cannot overshoot the limit.
+    private static final class DepthSample {
+        private final long sampledAt;
+        private long depth;
+
+        private DepthSample(final long depth, final long sampledAt) {
+            this.depth = depth;
+            this.sampledAt = sampledAt;
+        }
+
+        private synchronized boolean tryAdd(final int count, final long maxDepth) {
+            if (depth + count > maxDepth) {
+                return false;
+            }
+            depth += count;
+            return true;
+        }
+    }
+
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final int capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private TokenBucket(final double ratePerSecond, final int capacity) {
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        // Returns 0 when the tokens were taken, otherwise how long until they would be available.
+        // A batch larger than the burst is let through from a full bucket and leaves it in debt.
+        private synchronized long tryAcquire(final int count) {
+            refill();
+            if (tokens >= Math.min(count, capacity)) {
+                tokens -= count;
+                return 0;
+            }
+            return (long) Math.ceil((Math.min(count, capacity) - tokens) / tokensPerNano);
+        }
+
+        private synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            final long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
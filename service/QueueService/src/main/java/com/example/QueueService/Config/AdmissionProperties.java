@@ -0,0 +1,43 @@
+package com.example.QueueService.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "queue.admission")
+public class AdmissionProperties {
+
+    // Zero disables the corresponding limit
+    private long maxDepth = 0;
+    private Map<String, Long> maxDepths = new HashMap<>();
+    private Duration depthSampleInterval = Duration.ofSeconds(1);
+    private Duration fullRetryAfter = Duration.ofSeconds(5);
+    private double clientRatePerSecond = 0;
+    private int clientBurst = 100;
+
+    public long maxDepthFor(final String type) {
+        return maxDepths.getOrDefault(type, maxDepth);
+    }
+
+    public long getMaxDepth() { return maxDepth; }
+    public void setMaxDepth(final long maxDepth) { this.maxDepth = maxDepth; }
+
+    public Map<String, Long> getMaxDepths() { return maxDepths; }
+    public void setMaxDepths(final Map<String, Long> maxDepths) { this.maxDepths = maxDepths; }
+
+    public Duration getDepthSampleInterval() { return depthSampleInterval; }
+    public void setDepthSampleInterval(final Duration depthSampleInterval) { this.depthSampleInterval = depthSampleInterval; }
+
+    public Duration getFullRetryAfter() { return fullRetryAfter; }
+    public void setFullRetryAfter(final Duration fullRetryAfter) { this.fullRetryAfter = fullRetryAfter; }
+
+    public double getClientRatePerSecond() { return clientRatePerSecond; }
+    public void setClientRatePerSecond(final double clientRatePerSecond) { this.clientRatePerSecond = clientRatePerSecond; }
+
+    public int getClientBurst() { return clientBurst; }
+    public void setClientBurst(final int clientBurst) { this.clientBurst = clientBurst; }
+}
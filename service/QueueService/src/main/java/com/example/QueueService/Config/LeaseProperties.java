@@ -0,0 +1,34 @@
+package com.example.QueueService.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "queue.lease")
+public class LeaseProperties {
+
+    private Duration visibilityTimeout = Duration.ofMinutes(5);
+    private Map<String, Duration> visibilityTimeouts = new HashMap<>();
+    private Duration maxExtension = Duration.ofHours(1);
+    private int recoveryBatchSize = 100;
+
+    public Duration visibilityTimeoutFor(final String type) {
+        return visibilityTimeouts.getOrDefault(type, visibilityTimeout);
+    }
+
+    public Duration getVisibilityTimeout() { return visibilityTimeout; }
+    public void setVisibilityTimeout(final Duration visibilityTimeout) { this.visibilityTimeout = visibilityTimeout; }
+
+    public Map<String, Duration> getVisibilityTimeouts() { return visibilityTimeouts; }
+    public void setVisibilityTimeouts(final Map<String, Duration> visibilityTimeouts) { this.visibilityTimeouts = visibilityTimeouts; }
+
+    public Duration getMaxExtension() { return maxExtension; }
+    public void setMaxExtension(final Duration maxExtension) { this.maxExtension = maxExtension; }
+
+    public int getRecoveryBatchSize() { return recoveryBatchSize; }
+    public void setRecoveryBatchSize(final int recoveryBatchSize) { this.recoveryBatchSize = recoveryBatchSize; }
+}
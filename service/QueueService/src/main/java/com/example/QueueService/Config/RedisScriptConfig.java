@@ -0,0 +1,125 @@
+package com.example.QueueService.Config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+@Configuration
+public class RedisScriptConfig {
+
+    @Bean
+    public RedisScript<String> dequeueByIdScript() {
+        return RedisScript.of(new ClassPathResource("scripts/dequeue-by-id.lua"), String.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> claimBatchScript() {
+        return RedisScript.of(new ClassPathResource("scripts/claim-batch.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<Long> releaseExpiredScript() {
+        return RedisScript.of(new ClassPathResource("scripts/release-expired.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> extendLeaseScript() {
+        return RedisScript.of(new ClassPathResource("scripts/extend-lease.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> ackScript() {
+        return RedisScript.of(new ClassPathResource("scripts/ack.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> releaseDelayedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/release-delayed.lua"), Long.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> promoteDelayedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/promote-delayed.lua"), List.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> redriveFailedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/redrive-failed.lua"), List.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> failedPageScript() {
+        return RedisScript.of(new ClassPathResource("scripts/failed-page.lua"), List.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> streamClaimScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-claim.lua"), List.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> streamClaimByIdScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-claim-by-id.lua"), List.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> streamReclaimScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-reclaim.lua"), List.class);
+    }
+
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> streamRedriveFailedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-redrive-failed.lua"), List.class);
+    }
+
+    @Bean
+    public RedisScript<Long> streamEnqueueScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-enqueue.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> streamAckScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-ack.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> streamExtendScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-extend.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> streamReleaseDelayedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-release-delayed.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> streamDeadLetterScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-dead-letter.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> streamPromoteDelayedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/stream-promote-delayed.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> outboxLockScript() {
+        return RedisScript.of(new ClassPathResource("scripts/outbox-lock.lua"), Long.class);
+    }
+
+    @Bean
+    public RedisScript<Long> outboxTrimScript() {
+        return RedisScript.of(new ClassPathResource("scripts/outbox-trim.lua"), Long.class);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.QueueService.Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Configuration
+@ConfigurationProperties(prefix = "queue.retry")
+public class RetryProperties {
+
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofSeconds(2);
+    private Duration maxBackoff = Duration.ofMinutes(5);
+    private double multiplier = 2.0;
+
+    // Exponential backoff with "equal jitter": half the delay is fixed, the other half random,
+    // so retries of tasks that failed together spread out instead of returning in lockstep.
+    public Duration backoffFor(final int attempt) {
+        final double exponential = initialBackoff.toMillis() * Math.pow(multiplier, Math.max(0, attempt - 1));
+        final long capped = (long) Math.min(exponential, maxBackoff.toMillis());
+        final long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(capped - half + 1));
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+    public void setMaxAttempts(final int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+    public Duration getInitialBackoff() { return initialBackoff; }
+    public void setInitialBackoff(final Duration initialBackoff) { this.initialBackoff = initialBackoff; }
+
+    public Duration getMaxBackoff() { return maxBackoff; }
+    public void setMaxBackoff(final Duration maxBackoff) { this.maxBackoff = maxBackoff; }
+
+    public double getMultiplier() { return multiplier; }
+    public void setMultiplier(final double multiplier) { this.multiplier = multiplier; }
+}
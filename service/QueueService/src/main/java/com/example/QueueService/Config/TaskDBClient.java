@@ -1,6 +1,7 @@
 package com.example.QueueService.Config;
 
 import com.example.shared.Task;
+import com.example.shared.TaskStatusUpdate;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
@@ -25,6 +26,9 @@ public interface TaskDBClient {
             @RequestParam(value = "resultUrl", required = false) String resultUrl
     );
 
+    @PutMapping("/tasks/status")
+    void updateTaskStatuses(@RequestBody List<TaskStatusUpdate> updates);
+
     @PutMapping("/tasks/{id}/processing")
     void markTaskProcessing(@PathVariable("id") String id);
 
@@ -0,0 +1,193 @@
+package com.example.QueueService;
+
+import com.example.QueueService.Engine.QueueEngine.FailedTask;
+import com.example.shared.Task;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class DeadLetterService {
+
+    private static final int MAX_SCANNED_CHUNKS_PER_PAGE = 20;
+    private final QueueService queueService;
+    private final int scanChunkSize;
+    private final int maxPageSize;
+    private final int redriveBatchSize;
+    private final int redriveRatePerSecond;
+    private final Duration jobRetention;
+    private final ExecutorService redriveExecutor;
+    private final Map<String, RedriveJob> jobs = new ConcurrentHashMap<>();
+
+    public DeadLetterService(
+            final QueueService queueService,
+            @Value("${queue.dlq.scan-chunk-size:500}") final int scanChunkSize,
+            @Value("${queue.dlq.max-page-size:200}") final int maxPageSize,
+            @Value("${queue.dlq.redrive-batch-size:100}") final int redriveBatchSize,
+            @Value("${queue.dlq.redrive-rate-per-second:500}") final int redriveRatePerSecond,
+            @Value("${queue.dlq.job-retention:1h}") final Duration jobRetention
+    ) {
+        this.queueService = queueService;
+        this.scanChunkSize = scanChunkSize;
+        this.maxPageSize = maxPageSize;
+        this.redriveBatchSize = redriveBatchSize;
+        this.redriveRatePerSecond = Math.max(1, redriveRatePerSecond);
+        this.jobRetention = jobRetention;
+        this.redriveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "dlq-redrive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("DeadLetterService initialized (redrive batch={}, rate={}/s)", redriveBatchSize, redriveRatePerSecond);
+    }
+
+    // The cursor names the last entry scanned rather than a position, so failures that arrive while
+    // a client pages (and redrives that remove entries) neither repeat nor skip anything
+    public FailedPage list(final String cursor, final int limit, final String type, final String reason) throws Exception {
+        final int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        final List<FailedTask> items = new ArrayList<>(pageSize);
+        String position = cursor;
+        int chunks = 0;
+        while (items.size() < pageSize && chunks++ < MAX_SCANNED_CHUNKS_PER_PAGE) {
+            final List<FailedTask> chunk = queueService.failedTasks(position, scanChunkSize);
+            if (chunk.isEmpty()) {
+                return new FailedPage(items, null, queueService.failedCount());
+            }
+            for (final FailedTask failed : chunk) {
+                position = failed.cursor();
+                if (matches(failed, type, reason)) {
+                    items.add(failed);
+                    if (items.size() == pageSize) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new FailedPage(items, position, queueService.failedCount());
+    }
+
+    public RedriveStatus startRedrive(final String type, final String reason, final long max) {
+        final RedriveJob job = new RedriveJob(UUID.randomUUID().toString(), type, reason, max);
+        jobs.put(job.id, job);
+        redriveExecutor.submit(() -> runRedrive(job));
+        log.info("Started redrive job {} (type={}, reason={}, max={})", job.id, type, reason, max);
+        return job.status();
+    }
+
+    public RedriveStatus redriveStatus(final String jobId) {
+        final RedriveJob job = jobs.get(jobId);
+        return job == null ? null : job.status();
+    }
+
+    // Finished jobs stay queryable for the retention period, then are dropped
+    @Scheduled(fixedDelayString = "${queue.dlq.job-eviction-interval-ms:60000}")
+    public void evictFinishedJobs() {
+        final Instant cutoff = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        redriveExecutor.shutdownNow();
+    }
+
+    // Walks the failed list in small batches, each moved by one short Lua call, and sleeps between
+    // batches so a large replay neither monopolises Redis nor floods the workers.
+    private void runRedrive(final RedriveJob job) {
+        final long nanosPerTask = TimeUnit.SECONDS.toNanos(1) / redriveRatePerSecond;
+        final long started = System.nanoTime();
+        String position = null;
+        try {
+            while (job.max <= 0 || job.moved < job.max) {
+                final List<FailedTask> chunk = queueService.failedTasks(position, redriveBatchSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+
+                final List<Task> matching = new ArrayList<>(chunk.size());
+                for (final FailedTask failed : chunk) {
+                    job.scanned++;
+                    if (failed.task() != null && matches(failed, job.type, job.reason)
+                            && (job.max <= 0 || job.moved + matching.size() < job.max)) {
+                        matching.add(failed.task());
+                    }
+                }
+
+                // Resuming after the chunk's last entry still works once it has been moved out
+                final int moved = queueService.redriveFailed(matching).size();
+                job.moved += moved;
+                position = chunk.get(chunk.size() - 1).cursor();
+
+                final long ahead = started + job.moved * nanosPerTask - System.nanoTime();
+                if (ahead > 0) {
+                    TimeUnit.NANOSECONDS.sleep(ahead);
+                }
+            }
+            job.state = "completed";
+            log.info("Redrive job {} moved {} of {} scanned failed task(s)", job.id, job.moved, job.scanned);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.state = "interrupted";
+        } catch (Exception e) {
+            job.state = "failed";
+            job.error = e.getMessage();
+            log.error("Redrive job {} failed after moving {} task(s): {}", job.id, job.moved, e.getMessage(), e);
+        } finally {
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private static boolean matches(final FailedTask failed, final String type, final String reason) {
+        if (type != null && !type.isBlank()
+                && (failed.task() == null || !type.trim().equalsIgnoreCase(failed.task().getType()))) {
+            return false;
+        }
+        return reason == null || reason.isBlank()
+                || (failed.reason() != null
+                && failed.reason().toLowerCase(Locale.ROOT).contains(reason.trim().toLowerCase(Locale.ROOT)));
+    }
+
+    public record FailedPage(List<FailedTask> items, String nextCursor, long total) {}
+
+    public record RedriveStatus(String id, String state, long moved, long scanned, String error,
+                                Instant startedAt, Instant finishedAt) {}
+
+    private static final class RedriveJob {
+        private final String id;
+        private final String type;
+        private final String reason;
+        private final long max;
+        private final Instant startedAt = Instant.now();
+        private volatile String state = "running";
+        private volatile long moved;
+        private volatile long scanned;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private RedriveJob(final String id, final String type, final String reason, final long max) {
+            this.id = id;
+            this.type = type;
+            this.reason = reason;
+            this.max = max;
+        }
+
+        private RedriveStatus status() {
+            return new RedriveStatus(id, state, moved, scanned, error, startedAt, finishedAt);
+        }
+    }
+}
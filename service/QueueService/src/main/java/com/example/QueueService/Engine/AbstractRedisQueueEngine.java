@@ -0,0 +1,280 @@
+package com.example.QueueService.Engine;
+
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.PriorityScheduler;
+import com.example.shared.Task;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public abstract class AbstractRedisQueueEngine implements QueueEngine {
+
+    protected static final int MAX_PENDING_SIGNALS = 1024;
+    protected final StringRedisTemplate redisTemplate;
+    protected final TaskPayloadCodec codec;
+    protected final LeaseProperties leaseProperties;
+    protected final PriorityScheduler priorityScheduler;
+    protected final String queueName;
+    protected final String tasksHashName;
+    protected final String delayedSetName;
+    protected final String delayedTargetsHashName;
+    protected final String failedQueueName;
+    protected final String failedReasonsHashName;
+    protected final String dedupKeyPrefix;
+    protected final String outboxName;
+    protected final String outboxLockName;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> failedPageScript;
+    private final RedisScript<Long> outboxLockScript;
+    private final RedisScript<Long> outboxTrimScript;
+
+    protected AbstractRedisQueueEngine(
+            final StringRedisTemplate redisTemplate,
+            final TaskPayloadCodec codec,
+            final LeaseProperties leaseProperties,
+            final PriorityScheduler priorityScheduler,
+            @SuppressWarnings("rawtypes") final RedisScript<List> failedPageScript,
+            final RedisScript<Long> outboxLockScript,
+            final RedisScript<Long> outboxTrimScript,
+            final String queueName,
+            final String failedQueueName
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.leaseProperties = leaseProperties;
+        this.priorityScheduler = priorityScheduler;
+        this.failedPageScript = failedPageScript;
+        this.outboxLockScript = outboxLockScript;
+        this.outboxTrimScript = outboxTrimScript;
+        this.queueName = queueName;
+        this.tasksHashName = queueName + ":tasks";
+        this.delayedSetName = queueName + ":delayed";
+        this.delayedTargetsHashName = delayedSetName + ":targets";
+        this.failedQueueName = failedQueueName;
+        this.failedReasonsHashName = failedQueueName + ":reasons";
+        this.dedupKeyPrefix = queueName + ":dedup:";
+        this.outboxName = queueName + ":outbox";
+        // Hash-tagged on the outbox name so the trim script can check it in the outbox's slot
+        this.outboxLockName = "{" + outboxName + "}:lock";
+    }
+
+    protected abstract List<Task> claimNow(String type, int max) throws Exception;
+
+    @Override
+    public List<Task> claim(final String type, final int max, final long waitSeconds) throws Exception {
+        final List<Task> tasks = claimNow(type, max);
+        if (!tasks.isEmpty() || waitSeconds <= 0) {
+            return tasks;
+        }
+        return awaitClaim(type, max, waitSeconds);
+    }
+
+    // One SET NX PX per key in a single round trip; the losers are then read back to report
+    // which task already owns them
+    @Override
+    public Map<String, String> reserveIdempotencyKeys(final Map<String, String> taskIdsByKey, final Duration ttl) {
+        if (taskIdsByKey.isEmpty()) {
+            return Map.of();
+        }
+
+        final List<String> keys = new ArrayList<>(taskIdsByKey.keySet());
+        final Expiration expiration = Expiration.milliseconds(ttl.toMillis());
+        final List<Object> acquired = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (final String key : keys) {
+                stringConnection.set(dedupKeyPrefix + key, taskIdsByKey.get(key), expiration, SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+
+        final List<String> taken = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            if (!Boolean.TRUE.equals(acquired.get(i))) {
+                taken.add(keys.get(i));
+            }
+        }
+        if (taken.isEmpty()) {
+            return Map.of();
+        }
+
+        final List<String> holders = redisTemplate.opsForValue()
+                .multiGet(taken.stream().map(key -> dedupKeyPrefix + key).toList());
+        final Map<String, String> duplicates = new LinkedHashMap<>();
+        for (int i = 0; i < taken.size(); i++) {
+            final String holder = holders == null ? null : holders.get(i);
+            duplicates.put(taken.get(i), holder == null ? "" : holder);
+        }
+        return duplicates;
+    }
+
+    @Override
+    public void releaseIdempotencyKeys(final Collection<String> keys) {
+        if (!keys.isEmpty()) {
+            redisTemplate.delete(keys.stream().map(key -> dedupKeyPrefix + key).toList());
+        }
+    }
+
+    @Override
+    public long failedCount() {
+        final Long size = redisTemplate.opsForList().size(failedQueueName);
+        return size == null ? 0 : size;
+    }
+
+    @Override
+    public List<FailedTask> failedTasks(final String cursor, final int count) throws Exception {
+        return failedPage(failedQueueName, failedReasonsHashName, tasksHashName, FailedCursor.parse(cursor), count);
+    }
+
+    // Newest failures first, matching the LPUSH order of the failed list, starting after the cursor's
+    // task (or at the cursor's number of older entries if that task has been redriven since)
+    @SuppressWarnings("unchecked")
+    protected List<FailedTask> failedPage(final String failedList, final String reasonsHash, final String tasksHash,
+                                          final FailedCursor after, final int count) throws Exception {
+        final List<String> page = redisTemplate.execute(failedPageScript, List.of(failedList),
+                after == null ? "" : after.id(), String.valueOf(after == null ? 0 : after.older()),
+                String.valueOf(count));
+        if (page == null || page.size() <= 2) {
+            return List.of();
+        }
+
+        final long start = Long.parseLong(page.get(0));
+        final long size = Long.parseLong(page.get(1));
+        final List<String> ids = page.subList(2, page.size());
+        final List<Object> fields = new ArrayList<>(ids);
+        final List<Object> payloads = redisTemplate.opsForHash().multiGet(tasksHash, fields);
+        final List<Object> reasons = redisTemplate.opsForHash().multiGet(reasonsHash, fields);
+        final List<FailedTask> failed = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            final String payload = (String) payloads.get(i);
+            final Task task = payload == null ? null : codec.read(payload);
+            failed.add(new FailedTask(ids.get(i), task, (String) reasons.get(i),
+                    FailedCursor.of(size - 1 - (start + i), ids.get(i))));
+        }
+        return failed;
+    }
+
+    @Override
+    public void appendOutbox(final List<String> records) {
+        if (!records.isEmpty()) {
+            redisTemplate.opsForList().rightPushAll(outboxName, records);
+        }
+    }
+
+    @Override
+    public List<String> outboxHead(final int max) {
+        final List<String> head = redisTemplate.opsForList().range(outboxName, 0, max - 1);
+        return head == null ? List.of() : head;
+    }
+
+    @Override
+    public boolean trimOutbox(final String owner, final List<String> head) {
+        final List<String> args = new ArrayList<>(head.size() + 1);
+        args.add(owner);
+        args.addAll(head);
+        final Long trimmed = redisTemplate.execute(outboxTrimScript, List.of(outboxName, outboxLockName), args.toArray());
+        return trimmed != null && trimmed == 1L;
+    }
+
+    @Override
+    public boolean acquireOutboxLock(final String owner, final Duration ttl) {
+        final Long acquired = redisTemplate.execute(outboxLockScript, List.of(outboxLockName),
+                owner, String.valueOf(ttl.toMillis()));
+        return acquired != null && acquired == 1L;
+    }
+
+    // Every push of ready work also pushes a token onto the type's signal list, so waiting
+    // claims can block on one key no matter which priority level the work lands in.
+    private List<Task> awaitClaim(final String type, final int max, final long waitSeconds) throws Exception {
+        final String signalQueue = signalQueueName(type);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+        long remainingNanos;
+        while ((remainingNanos = deadline - System.nanoTime()) > 0) {
+            final long remainingSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos));
+            if (redisTemplate.opsForList().leftPop(signalQueue, Duration.ofSeconds(remainingSeconds)) == null) {
+                break;
+            }
+            final List<Task> tasks = claimNow(type, max);
+            if (!tasks.isEmpty()) {
+                return tasks;
+            }
+        }
+        return List.of();
+    }
+
+    // Due delayed task ids mapped to their "<ready key>\n<signal list>" target, null if it is missing
+    protected Map<String, String> dueDelayed(final String delayedSet, final String targetsHash, final long now,
+                                             final int max) {
+        final Set<String> due = redisTemplate.opsForZSet().rangeByScore(delayedSet, Double.NEGATIVE_INFINITY, now, 0, max);
+        if (due == null || due.isEmpty()) {
+            return Map.of();
+        }
+
+        final List<Object> ids = new ArrayList<>(due);
+        final List<Object> targets = redisTemplate.opsForHash().multiGet(targetsHash, ids);
+        final Map<String, String> targetsById = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            targetsById.put((String) ids.get(i), (String) targets.get(i));
+        }
+        return targetsById;
+    }
+
+    // Scripts only write to keys declared in KEYS, as Redis Cluster requires, so destinations are
+    // appended to the key list and passed in ARGV by their 1-based position
+    protected static String keyRef(final List<String> keys, final String key) {
+        int index = keys.indexOf(key);
+        if (index < 0) {
+            keys.add(key);
+            index = keys.size() - 1;
+        }
+        return String.valueOf(index + 1);
+    }
+
+    protected void pushDelayed(final StringRedisConnection connection, final Task task, final String payload) {
+        connection.hSet(tasksHashName, task.getId(), payload);
+        connection.hSet(delayedTargetsHashName, task.getId(), delayedTarget(task));
+        connection.zAdd(delayedSetName, task.getNotBefore().toEpochMilli(), task.getId());
+    }
+
+    protected static void signal(final StringRedisConnection connection, final String signalQueue) {
+        connection.lPush(signalQueue, "1");
+        connection.lTrim(signalQueue, 0, MAX_PENDING_SIGNALS - 1);
+    }
+
+    // "<where to deliver>\n<signal list>", read back when the task is promoted
+    protected String delayedTarget(final Task task) {
+        return readyKey(task) + "\n" + signalQueueName(task.getType());
+    }
+
+    protected abstract String readyKey(Task task);
+
+    protected String signalQueueName(final String type) {
+        return queueName + ":" + normalizeType(type) + ":signal";
+    }
+
+    protected String leaseExpiry(final String type) {
+        final long visibilityMs = leaseProperties.visibilityTimeoutFor(normalizeType(type)).toMillis();
+        return String.valueOf(System.currentTimeMillis() + visibilityMs);
+    }
+
+    protected static boolean isDelayed(final Task task) {
+        return task.getNotBefore() != null && task.getNotBefore().isAfter(Instant.now());
+    }
+
+    protected static String normalizeType(final String type) {
+        return type == null || type.isBlank() ? "default" : type.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.QueueService.Engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Segmented append-only log. Each segment is a fixed-size memory-mapped file holding
+// [length][crc32][record] frames; a zero length or bad checksum marks the end of a segment.
+@Slf4j
+final class AppendLog implements Closeable {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 8;
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private long activeSequence;
+    private int forcedPosition;
+
+    AppendLog(final Path directory, final int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                            && file.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(file -> segments.put(sequenceOf(file), file));
+        }
+    }
+
+    void replay(final Consumer<ByteBuffer> handler) throws IOException {
+        long records = 0;
+        for (final Path segment : segments.values()) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    final int length = buffer.getInt();
+                    final int checksum = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    final ByteBuffer record = buffer.slice(buffer.position(), length);
+                    if (checksum != checksum(record)) {
+                        log.warn("Stopping replay of '{}' at a torn record", segment.getFileName());
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+                    handler.accept(record.asReadOnlyBuffer());
+                    records++;
+                }
+            }
+        }
+        log.info("Replayed {} record(s) from {} segment(s) in '{}'", records, segments.size(), directory);
+
+        // Appends always go to a fresh segment so a torn tail is never written after
+        openSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+    }
+
+    void append(final byte[] record) throws IOException {
+        if (record.length + HEADER_BYTES > segmentSize) {
+            throw new IllegalArgumentException("Record of " + record.length + " bytes exceeds the segment size");
+        }
+        if (active.remaining() < record.length + HEADER_BYTES) {
+            roll();
+        }
+        active.putInt(record.length);
+        active.putInt(checksum(ByteBuffer.wrap(record)));
+        active.put(record);
+    }
+
+    // Seals the active segment and starts a new one, returning the new segment's sequence
+    long roll() throws IOException {
+        active.force();
+        activeChannel.close();
+        openSegment(activeSequence + 1);
+        return activeSequence;
+    }
+
+    void deleteBefore(final long sequence) throws IOException {
+        final Map<Long, Path> obsolete = segments.headMap(sequence);
+        for (final Path segment : obsolete.values()) {
+            Files.deleteIfExists(segment);
+        }
+        obsolete.clear();
+    }
+
+    int sealedSegments() {
+        return segments.size() - 1;
+    }
+
+    void force() {
+        active.force();
+        forcedPosition = active.position();
+    }
+
+    // Takes the bytes appended to the active segment since the last force, so the caller can sync
+    // them after releasing whatever lock guards the appends. Sealed segments were synced on roll.
+    DirtyRange takeDirtyRange() {
+        final int position = active.position();
+        final DirtyRange dirty = new DirtyRange(active, forcedPosition, position - forcedPosition);
+        forcedPosition = position;
+        return dirty;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (activeChannel != null && activeChannel.isOpen()) {
+            active.force();
+            activeChannel.close();
+        }
+    }
+
+    private void openSegment(final long sequence) throws IOException {
+        final Path segment = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        activeChannel = FileChannel.open(segment,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeSequence = sequence;
+        forcedPosition = 0;
+        segments.put(sequence, segment);
+    }
+
+    private int checksum(final ByteBuffer record) {
+        crc.reset();
+        crc.update(record.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static long sequenceOf(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Stays valid after the segment is rolled: the mapping lives as long as the buffer does
+    record DirtyRange(MappedByteBuffer buffer, int from, int length) {
+
+        void force() {
+            if (length > 0) {
+                buffer.force(from, length);
+            }
+        }
+    }
+}
@@ -0,0 +1,771 @@
+package com.example.QueueService.Engine;
+
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.PriorityScheduler;
+import com.example.QueueService.PriorityScheduler.PriorityLevel;
+import com.example.shared.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "queue.engine", havingValue = "embedded")
+public class EmbeddedQueueEngine implements QueueEngine {
+
+    private static final byte OP_ENQUEUE = 1;
+    private static final byte OP_LEASE = 2;
+    private static final byte OP_ACK = 3;
+    private static final byte OP_DEAD = 4;
+    private static final byte OP_RESET = 5;
+    private static final byte OP_OUTBOX = 6;
+    private static final byte OP_OUTBOX_TRIM = 7;
+    private final ObjectMapper mapper;
+    private final LeaseProperties leaseProperties;
+    private final PriorityScheduler priorityScheduler;
+    private final AppendLog appendLog;
+    private final int compactAfterSegments;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, ReadyQueues> ready = new HashMap<>();
+    private final TreeSet<Timed> leases = new TreeSet<>();
+    private final TreeSet<Timed> delayed = new TreeSet<>();
+    private final List<String> failed = new ArrayList<>();
+    private final Map<String, Timed> idempotencyKeys = new HashMap<>();
+    private final ArrayDeque<String> outbox = new ArrayDeque<>();
+
+    public EmbeddedQueueEngine(
+            final ObjectMapper mapper,
+            final LeaseProperties leaseProperties,
+            final PriorityScheduler priorityScheduler,
+            @Value("${queue.engine.embedded.directory:./data/queue}") final String directory,
+            @Value("${queue.engine.embedded.segment-size:64MB}") final DataSize segmentSize,
+            @Value("${queue.engine.embedded.compact-after-segments:4}") final int compactAfterSegments
+    ) throws IOException {
+        this.mapper = mapper;
+        this.leaseProperties = leaseProperties;
+        this.priorityScheduler = priorityScheduler;
+        this.compactAfterSegments = compactAfterSegments;
+        this.appendLog = new AppendLog(Path.of(directory), (int) segmentSize.toBytes());
+
+        lock.lock();
+        try {
+            appendLog.replay(this::applyRecord);
+        } finally {
+            lock.unlock();
+        }
+        log.info("EmbeddedQueueEngine initialized from '{}' with {} live task(s) ({} in flight, {} delayed, {} failed)",
+                directory, entries.size(), leases.size(), delayed.size(), failed.size());
+    }
+
+    @Override
+    public void enqueue(final List<Task> tasks) throws Exception {
+        final List<String> payloads = new ArrayList<>(tasks.size());
+        for (final Task task : tasks) {
+            payloads.add(mapper.writeValueAsString(task));
+        }
+
+        lock.lock();
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                appendLog.append(record(OP_ENQUEUE, tasks.get(i).getId(), payloads.get(i)));
+                applyEnqueue(tasks.get(i).getId(), payloads.get(i), tasks.get(i));
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Idempotency keys are only a duplicate filter, so they are kept in memory and not logged
+    @Override
+    public Map<String, String> reserveIdempotencyKeys(final Map<String, String> taskIdsByKey, final Duration ttl) {
+        final long now = System.currentTimeMillis();
+        final Map<String, String> duplicates = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            for (final Map.Entry<String, String> key : taskIdsByKey.entrySet()) {
+                final Timed holder = idempotencyKeys.get(key.getKey());
+                if (holder != null && holder.time > now) {
+                    duplicates.put(key.getKey(), holder.id);
+                    continue;
+                }
+                idempotencyKeys.put(key.getKey(), new Timed(now + ttl.toMillis(), key.getValue()));
+            }
+            return duplicates;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void releaseIdempotencyKeys(final Collection<String> keys) {
+        lock.lock();
+        try {
+            keys.forEach(idempotencyKeys::remove);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task peek(final String type) throws Exception {
+        lock.lock();
+        try {
+            final ReadyQueues queues = ready.get(normalizeType(type));
+            if (queues == null) {
+                return null;
+            }
+            for (final PriorityLevel level : PriorityLevel.values()) {
+                final Entry entry = queues.peek(level);
+                if (entry != null) {
+                    return mapper.readValue(entry.json, Task.class);
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long depth(final String type) {
+        lock.lock();
+        try {
+            final ReadyQueues queues = ready.get(normalizeType(type));
+            return queues == null ? 0 : queues.size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Instant oldestReady(final String type) throws Exception {
+        lock.lock();
+        try {
+            final ReadyQueues queues = ready.get(normalizeType(type));
+            if (queues == null) {
+                return null;
+            }
+            Instant oldest = null;
+            for (final PriorityLevel level : PriorityLevel.values()) {
+                final Entry entry = queues.peek(level);
+                final Instant readySince = entry == null ? null
+                        : QueueEngine.readySince(mapper.readValue(entry.json, Task.class));
+                if (readySince != null && (oldest == null || readySince.isBefore(oldest))) {
+                    oldest = readySince;
+                }
+            }
+            return oldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long inFlight() {
+        lock.lock();
+        try {
+            return leases.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task claimById(final String taskId) throws Exception {
+        lock.lock();
+        try {
+            final Entry entry = entries.get(taskId);
+            if (entry == null || entry.state != State.READY) {
+                return null;
+            }
+            return lease(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> claim(final String type, final int max, final long waitSeconds) throws Exception {
+        long remaining = TimeUnit.SECONDS.toNanos(Math.max(0, waitSeconds));
+        lock.lock();
+        try {
+            while (true) {
+                final List<Task> tasks = claimNow(type, max);
+                if (!tasks.isEmpty() || remaining <= 0) {
+                    return tasks;
+                }
+                remaining = workAvailable.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public LeaseOutcome extendLease(final String taskId, final String receipt, final Duration extension) {
+        lock.lock();
+        try {
+            final LeaseOutcome outcome = checkLease(taskId, receipt);
+            if (outcome != LeaseOutcome.OK) {
+                return outcome;
+            }
+            final long expiry = System.currentTimeMillis() + extension.toMillis();
+            final String held = entries.get(taskId).receipt;
+            appendLog.append(record(OP_LEASE, taskId, held, Long.toString(expiry)));
+            applyLease(taskId, held, expiry);
+            return outcome;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write lease extension of task " + taskId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public LeaseOutcome ack(final String taskId, final String receipt) {
+        lock.lock();
+        try {
+            final LeaseOutcome outcome = checkLease(taskId, receipt);
+            if (outcome != LeaseOutcome.OK) {
+                return outcome;
+            }
+            appendLog.append(record(OP_ACK, taskId));
+            applyAck(taskId);
+            return outcome;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write ack of task " + taskId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> expiredLeases(final int max) throws Exception {
+        final long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            final List<Task> tasks = new ArrayList<>();
+            for (final Timed lease : leases) {
+                if (lease.time > now || tasks.size() >= max) {
+                    break;
+                }
+                tasks.add(mapper.readValue(entries.get(lease.id).json, Task.class));
+            }
+            return tasks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean retryLater(final Task task, final Instant notBefore) throws Exception {
+        task.setNotBefore(notBefore);
+        task.setReceipt(null);
+        final String json = mapper.writeValueAsString(task);
+        lock.lock();
+        try {
+            if (!isExpired(task.getId())) {
+                return false;
+            }
+            appendLog.append(record(OP_ENQUEUE, task.getId(), json));
+            applyEnqueue(task.getId(), json, task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deadLetter(final Task task, final String reason) {
+        lock.lock();
+        try {
+            if (!isExpired(task.getId())) {
+                return false;
+            }
+            appendLog.append(record(OP_DEAD, task.getId(), reason));
+            applyDead(task.getId(), reason);
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to dead-letter task " + task.getId(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Promotion is not logged: a delayed task replays as delayed and is simply promoted again
+    @Override
+    public long promoteDue(final int max) {
+        final long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            long promoted = 0;
+            while (promoted < max && !delayed.isEmpty() && delayed.first().time <= now) {
+                final Entry entry = entries.get(delayed.pollFirst().id);
+                entry.state = State.READY;
+                readyQueues(entry.type).push(entry);
+                promoted++;
+            }
+            if (promoted > 0) {
+                workAvailable.signalAll();
+            }
+            return promoted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long failedCount() {
+        lock.lock();
+        try {
+            return failed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<FailedTask> failedTasks(final String cursor, final int count) throws Exception {
+        final FailedCursor after = FailedCursor.parse(cursor);
+        lock.lock();
+        try {
+            // The failed list is oldest first, so an entry's index is the number of older failures
+            int next = failed.size() - 1;
+            if (after != null) {
+                final int index = failed.lastIndexOf(after.id());
+                next = (index >= 0 ? index : (int) Math.min(after.older(), failed.size())) - 1;
+            }
+            final List<FailedTask> page = new ArrayList<>(count);
+            for (int i = next; i >= 0 && page.size() < count; i--) {
+                final Entry entry = entries.get(failed.get(i));
+                page.add(new FailedTask(entry.id, mapper.readValue(entry.json, Task.class), entry.reason,
+                        FailedCursor.of(i, entry.id)));
+            }
+            return page;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> redriveFailed(final List<Task> tasks) throws Exception {
+        final List<String> moved = new ArrayList<>(tasks.size());
+        lock.lock();
+        try {
+            for (final Task task : tasks) {
+                final Entry entry = entries.get(task.getId());
+                if (entry == null || entry.state != State.FAILED) {
+                    continue;
+                }
+                final String json = mapper.writeValueAsString(task);
+                appendLog.append(record(OP_ENQUEUE, task.getId(), json));
+                applyEnqueue(task.getId(), json, task);
+                moved.add(task.getId());
+            }
+            if (!moved.isEmpty()) {
+                workAvailable.signalAll();
+            }
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void appendOutbox(final List<String> records) throws IOException {
+        lock.lock();
+        try {
+            for (final String pending : records) {
+                appendLog.append(record(OP_OUTBOX, pending));
+                outbox.addLast(pending);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> outboxHead(final int max) {
+        lock.lock();
+        try {
+            return outbox.stream().limit(max).toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean trimOutbox(final String owner, final List<String> head) throws IOException {
+        lock.lock();
+        try {
+            if (!outbox.stream().limit(head.size()).toList().equals(head)) {
+                return false;
+            }
+            appendLog.append(record(OP_OUTBOX_TRIM, Integer.toString(head.size())));
+            applyOutboxTrim(head.size());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only this process reads the log, so it is always the single flusher
+    @Override
+    public boolean acquireOutboxLock(final String owner, final Duration ttl) {
+        return true;
+    }
+
+    // Only the bytes appended since the last flush are synced, and outside the lock, so appends
+    // never wait for the disk
+    @Scheduled(fixedDelayString = "${queue.engine.embedded.flush-interval-ms:100}")
+    public void flush() {
+        final AppendLog.DirtyRange dirty;
+        lock.lock();
+        try {
+            dirty = appendLog.takeDirtyRange();
+        } finally {
+            lock.unlock();
+        }
+        dirty.force();
+    }
+
+    // Rewrites the live state behind a reset marker into fresh segments, then drops the old ones.
+    // A crash before the drop just replays the old history followed by the same snapshot, so the
+    // snapshot is synced outside the lock and only the drop takes it again.
+    @Scheduled(fixedDelayString = "${queue.engine.embedded.compact-interval-ms:60000}")
+    public void compact() throws IOException {
+        final long snapshotStart;
+        final AppendLog.DirtyRange snapshot;
+        lock.lock();
+        try {
+            final long now = System.currentTimeMillis();
+            idempotencyKeys.values().removeIf(holder -> holder.time <= now);
+            if (appendLog.sealedSegments() < compactAfterSegments) {
+                return;
+            }
+            snapshotStart = appendLog.roll();
+            appendLog.append(record(OP_RESET));
+            for (final ReadyQueues queues : ready.values()) {
+                for (final PriorityLevel level : PriorityLevel.values()) {
+                    for (final Entry entry : queues.live(level)) {
+                        appendLog.append(record(OP_ENQUEUE, entry.id, entry.json));
+                    }
+                }
+            }
+            for (final Entry entry : entries.values()) {
+                if (entry.state == State.READY) {
+                    continue;
+                }
+                appendLog.append(record(OP_ENQUEUE, entry.id, entry.json));
+                if (entry.state == State.LEASED) {
+                    appendLog.append(record(OP_LEASE, entry.id, entry.receipt, Long.toString(entry.expiry)));
+                } else if (entry.state == State.FAILED) {
+                    appendLog.append(record(OP_DEAD, entry.id, entry.reason));
+                }
+            }
+            for (final String pending : outbox) {
+                appendLog.append(record(OP_OUTBOX, pending));
+            }
+            snapshot = appendLog.takeDirtyRange();
+        } finally {
+            lock.unlock();
+        }
+
+        snapshot.force();
+        lock.lock();
+        try {
+            appendLog.deleteBefore(snapshotStart);
+            log.info("Compacted queue log to {} live task(s)", entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        lock.lock();
+        try {
+            appendLog.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Task> claimNow(final String type, final int max) throws Exception {
+        final ReadyQueues queues = ready.get(normalizeType(type));
+        if (queues == null) {
+            return List.of();
+        }
+
+        final String preferences = priorityScheduler.nextPreferences(normalizeType(type), max);
+        final List<Task> tasks = new ArrayList<>(max);
+        for (int slot = 0; slot < max; slot++) {
+            Entry entry = queues.poll(PriorityLevel.values()[preferences.charAt(slot) - '1']);
+            for (int level = 0; entry == null && level < PriorityLevel.values().length; level++) {
+                entry = queues.poll(PriorityLevel.values()[level]);
+            }
+            if (entry == null) {
+                break;
+            }
+            tasks.add(lease(entry));
+        }
+        return tasks;
+    }
+
+    private Task lease(final Entry entry) throws Exception {
+        final String receipt = UUID.randomUUID().toString();
+        final long expiry = System.currentTimeMillis()
+                + leaseProperties.visibilityTimeoutFor(entry.type).toMillis();
+        appendLog.append(record(OP_LEASE, entry.id, receipt, Long.toString(expiry)));
+        applyLease(entry.id, receipt, expiry);
+
+        final Task task = mapper.readValue(entry.json, Task.class);
+        task.setReceipt(receipt);
+        return task;
+    }
+
+    // As in the list engine, a missing receipt skips the check
+    private LeaseOutcome checkLease(final String taskId, final String receipt) {
+        final Entry entry = entries.get(taskId);
+        if (entry == null || entry.state != State.LEASED) {
+            return LeaseOutcome.NOT_IN_FLIGHT;
+        }
+        if (receipt == null || receipt.isEmpty()) {
+            return LeaseOutcome.OK;
+        }
+        return entry.receipt.equals(receipt) ? LeaseOutcome.OK : LeaseOutcome.STALE_RECEIPT;
+    }
+
+    private boolean isExpired(final String taskId) {
+        final Entry entry = entries.get(taskId);
+        return entry != null && entry.state == State.LEASED && entry.expiry <= System.currentTimeMillis();
+    }
+
+    private void applyRecord(final ByteBuffer record) {
+        final byte op = record.get();
+        switch (op) {
+            case OP_ENQUEUE -> {
+                final String id = readString(record);
+                final String json = readString(record);
+                try {
+                    applyEnqueue(id, json, mapper.readValue(json, Task.class));
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable task {} in queue log: {}", id, e.getMessage());
+                }
+            }
+            case OP_LEASE -> applyLease(readString(record), readString(record), Long.parseLong(readString(record)));
+            case OP_ACK -> applyAck(readString(record));
+            case OP_DEAD -> applyDead(readString(record), readString(record));
+            case OP_OUTBOX -> outbox.addLast(readString(record));
+            case OP_OUTBOX_TRIM -> applyOutboxTrim(Integer.parseInt(readString(record)));
+            case OP_RESET -> {
+                entries.clear();
+                ready.clear();
+                leases.clear();
+                delayed.clear();
+                failed.clear();
+                outbox.clear();
+            }
+            default -> log.warn("Skipping unknown queue log record type {}", op);
+        }
+    }
+
+    private void applyEnqueue(final String id, final String json, final Task task) {
+        final Entry entry = entries.computeIfAbsent(id, Entry::new);
+        detach(entry);
+        entry.json = json;
+        entry.type = normalizeType(task.getType());
+        entry.level = priorityScheduler.levelOf(task.getPriority());
+        entry.reason = null;
+        if (task.getNotBefore() != null && task.getNotBefore().toEpochMilli() > System.currentTimeMillis()) {
+            entry.state = State.DELAYED;
+            entry.notBefore = task.getNotBefore().toEpochMilli();
+            delayed.add(new Timed(entry.notBefore, id));
+        } else {
+            entry.state = State.READY;
+            readyQueues(entry.type).push(entry);
+        }
+    }
+
+    private void applyLease(final String id, final String receipt, final long expiry) {
+        final Entry entry = entries.get(id);
+        if (entry == null) {
+            return;
+        }
+        detach(entry);
+        entry.state = State.LEASED;
+        entry.receipt = receipt;
+        entry.expiry = expiry;
+        leases.add(new Timed(expiry, id));
+    }
+
+    private void applyAck(final String id) {
+        final Entry entry = entries.remove(id);
+        if (entry != null) {
+            detach(entry);
+        }
+    }
+
+    private void applyDead(final String id, final String reason) {
+        final Entry entry = entries.get(id);
+        if (entry == null) {
+            return;
+        }
+        detach(entry);
+        entry.state = State.FAILED;
+        entry.reason = reason;
+        failed.add(id);
+    }
+
+    private void applyOutboxTrim(final int count) {
+        for (int i = 0; i < count && !outbox.isEmpty(); i++) {
+            outbox.pollFirst();
+        }
+    }
+
+    // Ready queues are cleaned lazily: bumping the version invalidates the queued slot
+    private void detach(final Entry entry) {
+        if (entry.state == null) {
+            return;
+        }
+        switch (entry.state) {
+            case READY -> {
+                entry.version++;
+                readyQueues(entry.type).size--;
+            }
+            case DELAYED -> delayed.remove(new Timed(entry.notBefore, entry.id));
+            case LEASED -> leases.remove(new Timed(entry.expiry, entry.id));
+            case FAILED -> failed.remove(entry.id);
+        }
+        entry.state = null;
+    }
+
+    private ReadyQueues readyQueues(final String type) {
+        return ready.computeIfAbsent(type, key -> new ReadyQueues());
+    }
+
+    private static byte[] record(final byte op, final String... fields) {
+        final List<byte[]> encoded = new ArrayList<>(fields.length);
+        int size = 1;
+        for (final String field : fields) {
+            final byte[] bytes = (field == null ? "" : field).getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(size).put(op);
+        for (final byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        return buffer.array();
+    }
+
+    private static String readString(final ByteBuffer record) {
+        final byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String normalizeType(final String type) {
+        return type == null || type.isBlank() ? "default" : type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private enum State { READY, DELAYED, LEASED, FAILED }
+
+    private static final class Entry {
+        private final String id;
+        private String json;
+        private String type;
+        private PriorityLevel level;
+        private State state;
+        private long version;
+        private String receipt;
+        private long expiry;
+        private long notBefore;
+        private String reason;
+
+        private Entry(final String id) {
+            this.id = id;
+        }
+    }
+
+    private record Slot(Entry entry, long version) {
+        private boolean isLive() {
+            return entry.state == State.READY && entry.version == version;
+        }
+    }
+
+    private record Timed(long time, String id) implements Comparable<Timed> {
+        @Override
+        public int compareTo(final Timed other) {
+            final int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : id.compareTo(other.id);
+        }
+    }
+
+    private static final class ReadyQueues {
+        private final List<ArrayDeque<Slot>> levels = List.of(new ArrayDeque<>(), new ArrayDeque<>(), new ArrayDeque<>());
+        private long size;
+
+        private void push(final Entry entry) {
+            levels.get(entry.level.ordinal()).addLast(new Slot(entry, entry.version));
+            size++;
+        }
+
+        private Entry peek(final PriorityLevel level) {
+            final ArrayDeque<Slot> queue = levels.get(level.ordinal());
+            while (!queue.isEmpty() && !queue.peekFirst().isLive()) {
+                queue.pollFirst();
+            }
+            return queue.isEmpty() ? null : queue.peekFirst().entry();
+        }
+
+        private Entry poll(final PriorityLevel level) {
+            final Entry entry = peek(level);
+            if (entry != null) {
+                levels.get(level.ordinal()).pollFirst();
+            }
+            return entry;
+        }
+
+        private List<Entry> live(final PriorityLevel level) {
+            final List<Entry> live = new ArrayList<>();
+            final Iterator<Slot> slots = levels.get(level.ordinal()).iterator();
+            while (slots.hasNext()) {
+                final Slot slot = slots.next();
+                if (slot.isLive()) {
+                    live.add(slot.entry());
+                }
+            }
+            return live;
+        }
+    }
+}
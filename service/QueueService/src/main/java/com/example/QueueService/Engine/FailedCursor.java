@@ -0,0 +1,27 @@
+package com.example.QueueService.Engine;
+
+// Points just past a failed entry: the task id, plus how many failures were older than it. New
+// failures are pushed on the newest end, so the count stays valid while the list grows and is
+// what a page resumes from when the task itself has been redriven in the meantime.
+record FailedCursor(long older, String id) {
+
+    static FailedCursor parse(final String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        final int separator = cursor.indexOf(':');
+        try {
+            final long older = Long.parseLong(cursor.substring(0, Math.max(separator, 0)));
+            if (older >= 0 && separator + 1 < cursor.length()) {
+                return new FailedCursor(older, cursor.substring(separator + 1));
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Malformed failed-task cursor: " + cursor);
+    }
+
+    static String of(final long older, final String id) {
+        return older + ":" + id;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.QueueService.Engine;
+
+import com.example.shared.Task;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface QueueEngine {
+
+    void enqueue(List<Task> tasks) throws Exception;
+
+    // Claims each idempotency key for its task id until the TTL runs out; returns the keys that were
+    // already held, mapped to the task id holding them
+    Map<String, String> reserveIdempotencyKeys(Map<String, String> taskIdsByKey, Duration ttl);
+
+    void releaseIdempotencyKeys(Collection<String> keys);
+
+    Task peek(String type) throws Exception;
+
+    // Tasks of a type waiting to be claimed
+    long depth(String type);
+
+    // When the oldest task of a type still waiting to be claimed became ready, or null if none is
+    Instant oldestReady(String type) throws Exception;
+
+    long inFlight();
+
+    Task claimById(String taskId) throws Exception;
+
+    List<Task> claim(String type, int max, long waitSeconds) throws Exception;
+
+    // The streams engine cannot set a lease length and renews for the type's visibility timeout instead
+    LeaseOutcome extendLease(String taskId, String receipt, Duration extension);
+
+    LeaseOutcome ack(String taskId, String receipt);
+
+    // Tasks whose lease ran out, handed to the caller to either retry or dead-letter
+    List<Task> expiredLeases(int max) throws Exception;
+
+    boolean retryLater(Task task, Instant notBefore) throws Exception;
+
+    boolean deadLetter(Task task, String reason);
+
+    long promoteDue(int max);
+
+    long failedCount();
+
+    // Newest failures first, resuming after the entry whose cursor is given (null starts at the newest)
+    List<FailedTask> failedTasks(String cursor, int count) throws Exception;
+
+    List<String> redriveFailed(List<Task> tasks) throws Exception;
+
+    // Durable FIFO of serialized status writes, stored next to the queue and drained by one
+    // flusher at a time (whoever holds the outbox lock)
+    void appendOutbox(List<String> records) throws Exception;
+
+    List<String> outboxHead(int max);
+
+    // Removes the given head records, but only while the owner still holds the outbox lock and
+    // they are still the head; false means another flusher took over and nothing was removed
+    boolean trimOutbox(String owner, List<String> head) throws Exception;
+
+    // Takes the outbox lock for the owner or renews it if the owner already holds it
+    boolean acquireOutboxLock(String owner, Duration ttl);
+
+    static Instant readySince(final Task task) {
+        if (task.getNotBefore() != null && (task.getCreatedAt() == null || task.getNotBefore().isAfter(task.getCreatedAt()))) {
+            return task.getNotBefore();
+        }
+        return task.getCreatedAt();
+    }
+
+    record FailedTask(String id, Task task, String reason, String cursor) {}
+
+    enum LeaseOutcome {
+        OK, NOT_IN_FLIGHT, STALE_RECEIPT;
+
+        static LeaseOutcome of(final Long scriptResult) {
+            if (scriptResult == null || scriptResult == 0L) {
+                return NOT_IN_FLIGHT;
+            }
+            return scriptResult < 0 ? STALE_RECEIPT : OK;
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package com.example.QueueService.Engine;
+
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.PriorityScheduler;
+import com.example.QueueService.PriorityScheduler.PriorityLevel;
+import com.example.shared.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "queue.engine", havingValue = "list", matchIfMissing = true)
+public class RedisListQueueEngine extends AbstractRedisQueueEngine {
+
+    private static final int READY_TAIL_WINDOW = 16;
+    private final RedisScript<String> dequeueByIdScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> claimBatchScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> redriveFailedScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> promoteDelayedScript;
+    private final RedisScript<Long> releaseExpiredScript;
+    private final RedisScript<Long> extendLeaseScript;
+    private final RedisScript<Long> ackScript;
+    private final RedisScript<Long> releaseDelayedScript;
+    private final List<Shard> shards;
+    private final Map<String, AtomicInteger> claimCursors = new ConcurrentHashMap<>();
+
+    public RedisListQueueEngine(
+            final StringRedisTemplate redisTemplate,
+            final TaskPayloadCodec codec,
+            final LeaseProperties leaseProperties,
+            final PriorityScheduler priorityScheduler,
+            final RedisScript<String> dequeueByIdScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> claimBatchScript,
+            final RedisScript<Long> releaseExpiredScript,
+            final RedisScript<Long> extendLeaseScript,
+            final RedisScript<Long> ackScript,
+            final RedisScript<Long> releaseDelayedScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> promoteDelayedScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> redriveFailedScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> failedPageScript,
+            final RedisScript<Long> outboxLockScript,
+            final RedisScript<Long> outboxTrimScript,
+            @Value("${redis.queue.name:task-queue}") final String queueName,
+            @Value("${redis.processing.queue.name:redis-processing-leases}") final String processingQueueName,
+            @Value("${redis.failed.queue.name:failed-queue}") final String failedQueueName,
+            @Value("${queue.shards:1}") final int shardCount
+    ) {
+        super(redisTemplate, codec, leaseProperties, priorityScheduler, failedPageScript, outboxLockScript,
+                outboxTrimScript, queueName, failedQueueName);
+        this.dequeueByIdScript = dequeueByIdScript;
+        this.claimBatchScript = claimBatchScript;
+        this.releaseExpiredScript = releaseExpiredScript;
+        this.extendLeaseScript = extendLeaseScript;
+        this.ackScript = ackScript;
+        this.releaseDelayedScript = releaseDelayedScript;
+        this.promoteDelayedScript = promoteDelayedScript;
+        this.redriveFailedScript = redriveFailedScript;
+
+        final int count = Math.max(1, shardCount);
+        final List<Shard> shards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shards.add(Shard.of(count == 1 ? "" : ":{" + i + "}", queueName, processingQueueName, failedQueueName));
+        }
+        this.shards = List.copyOf(shards);
+
+        log.info("RedisListQueueEngine initialized with {} shard(s): main='{}:<type>[:high|:low]', leases='{}', delayed='{}', failed='{}', payloads='{}'",
+                count, shards.get(0).prefix(), shards.get(0).leases(), shards.get(0).delayed(),
+                shards.get(0).failed(), shards.get(0).tasks());
+    }
+
+    @Override
+    public void enqueue(final List<Task> tasks) throws Exception {
+        final List<String> payloads = new ArrayList<>(tasks.size());
+        for (final Task task : tasks) {
+            payloads.add(codec.write(task));
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i < tasks.size(); i++) {
+                final Task task = tasks.get(i);
+                final Shard shard = shardOf(task.getId());
+                stringConnection.hSet(shard.tasks(), task.getId(), payloads.get(i));
+                if (isDelayed(task)) {
+                    stringConnection.hSet(shard.delayedTargets(), task.getId(), delayedTarget(task));
+                    stringConnection.zAdd(shard.delayed(), task.getNotBefore().toEpochMilli(), task.getId());
+                    continue;
+                }
+                final String readyQueue = readyKey(task);
+                stringConnection.hSet(queuedMarks(readyQueue), task.getId(), "1");
+                stringConnection.lPush(readyQueue, task.getId());
+                signal(stringConnection, signalQueueName(task.getType()));
+            }
+            return null;
+        });
+        log.debug("Pushed {} task(s) to Redis in one pipeline", tasks.size());
+    }
+
+    @Override
+    public Task peek(final String type) throws Exception {
+        final List<String> readyQueues = new ArrayList<>();
+        for (final PriorityLevel level : PriorityLevel.values()) {
+            for (final Shard shard : shards) {
+                readyQueues.add(shard.readyQueue(normalizeType(type), level));
+            }
+        }
+
+        final List<String> heads = readyHeads(readyQueues);
+        for (int i = 0; i < heads.size(); i++) {
+            final String taskId = heads.get(i);
+            if (taskId == null) {
+                continue;
+            }
+
+            final Shard shard = shards.get(i % shards.size());
+            final String payload = (String) redisTemplate.opsForHash().get(shard.tasks(), taskId);
+            if (payload == null) {
+                log.warn("Task {} is queued but has no payload in '{}'", taskId, shard.tasks());
+                return null;
+            }
+            return codec.read(payload);
+        }
+        return null;
+    }
+
+    // Counts the queued marks, since ready lists may still hold stale copies of tasks claimed by id
+    @Override
+    public long depth(final String type) {
+        final String normalizedType = normalizeType(type);
+        final List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (final Shard shard : shards) {
+                for (final PriorityLevel level : PriorityLevel.values()) {
+                    stringConnection.hLen(queuedMarks(shard.readyQueue(normalizedType, level)));
+                }
+            }
+            return null;
+        });
+        return sizes.stream().mapToLong(size -> size == null ? 0 : (Long) size).sum();
+    }
+
+    // Reads only the tail of each ready list, which is the next task it would hand out
+    @Override
+    public Instant oldestReady(final String type) throws Exception {
+        final String normalizedType = normalizeType(type);
+        final int levels = PriorityLevel.values().length;
+        final List<String> readyQueues = new ArrayList<>();
+        for (final Shard shard : shards) {
+            for (final PriorityLevel level : PriorityLevel.values()) {
+                readyQueues.add(shard.readyQueue(normalizedType, level));
+            }
+        }
+        final List<String> heads = readyHeads(readyQueues);
+        final List<Object> payloads = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i < heads.size(); i++) {
+                if (heads.get(i) != null) {
+                    stringConnection.hGet(shards.get(i / levels).tasks(), heads.get(i));
+                }
+            }
+            return null;
+        });
+
+        Instant oldest = null;
+        for (final Object payload : payloads) {
+            if (payload == null) {
+                continue;
+            }
+            final Instant readySince = QueueEngine.readySince(codec.read((String) payload));
+            if (readySince != null && (oldest == null || readySince.isBefore(oldest))) {
+                oldest = readySince;
+            }
+        }
+        return oldest;
+    }
+
+    @Override
+    public long inFlight() {
+        final List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            shards.forEach(shard -> stringConnection.zCard(shard.leases()));
+            return null;
+        });
+        return sizes.stream().mapToLong(size -> size == null ? 0 : (Long) size).sum();
+    }
+
+    @Override
+    public Task claimById(final String taskId) throws Exception {
+        final Shard shard = shardOf(taskId);
+        final String storedPayload = (String) redisTemplate.opsForHash().get(shard.tasks(), taskId);
+        if (storedPayload == null) {
+            log.warn("Task {} has no payload in '{}'", taskId, shard.tasks());
+            return null;
+        }
+
+        final Task stored = codec.read(storedPayload);
+        final String readyQueue = readyKey(stored);
+        final String receipt = newReceipt();
+        final String taskPayload = redisTemplate.execute(dequeueByIdScript,
+                List.of(queuedMarks(readyQueue), shard.leases(), shard.tasks(), shard.receipts()),
+                taskId, leaseExpiry(stored.getType()), receipt);
+        if (taskPayload == null) {
+            log.warn("Task {} not found in queue '{}'", taskId, readyQueue);
+            return null;
+        }
+        log.info("Moved task {} from '{}' to '{}'", taskId, readyQueue, shard.leases());
+
+        final Task task = codec.read(taskPayload);
+        task.setReceipt(receipt);
+        return task;
+    }
+
+    // Starts at a rotating shard per type and keeps stealing from the following shards until the
+    // batch is full, so no shard is favoured and an idle shard never leaves a claimer empty-handed.
+    @Override
+    protected List<Task> claimNow(final String type, final int max) throws Exception {
+        final String normalizedType = normalizeType(type);
+        final int start = shards.size() == 1 ? 0
+                : Math.floorMod(claimCursors.computeIfAbsent(normalizedType, key -> new AtomicInteger()).getAndIncrement(), shards.size());
+        final List<Task> tasks = new ArrayList<>(max);
+        for (int i = 0; i < shards.size() && tasks.size() < max; i++) {
+            tasks.addAll(claimBatch(shards.get((start + i) % shards.size()), normalizedType, max - tasks.size()));
+        }
+        return tasks;
+    }
+
+    @Override
+    public LeaseOutcome extendLease(final String taskId, final String receipt, final Duration extension) {
+        final Shard shard = shardOf(taskId);
+        final Instant expiresAt = Instant.now().plus(extension);
+        return LeaseOutcome.of(redisTemplate.execute(extendLeaseScript,
+                List.of(shard.leases(), shard.receipts()),
+                taskId, String.valueOf(expiresAt.toEpochMilli()), receipt == null ? "" : receipt));
+    }
+
+    @Override
+    public LeaseOutcome ack(final String taskId, final String receipt) {
+        final Shard shard = shardOf(taskId);
+        return LeaseOutcome.of(redisTemplate.execute(ackScript,
+                List.of(shard.leases(), shard.receipts(), shard.tasks()),
+                taskId, receipt == null ? "" : receipt));
+    }
+
+    @Override
+    public List<Task> expiredLeases(final int max) throws Exception {
+        final long now = System.currentTimeMillis();
+        final List<Task> tasks = new ArrayList<>();
+        for (final Shard shard : shards) {
+            if (tasks.size() >= max) {
+                break;
+            }
+            final Set<String> expired = redisTemplate.opsForZSet()
+                    .rangeByScore(shard.leases(), 0, now, 0, max - tasks.size());
+            if (expired == null || expired.isEmpty()) {
+                continue;
+            }
+
+            final List<Object> payloads = redisTemplate.opsForHash().multiGet(shard.tasks(), new ArrayList<>(expired));
+            int i = 0;
+            for (final String taskId : expired) {
+                final String payload = (String) payloads.get(i++);
+                if (payload == null) {
+                    redisTemplate.opsForZSet().remove(shard.leases(), taskId);
+                    log.warn("Dropped task {} from processing set: payload missing", taskId);
+                    continue;
+                }
+                tasks.add(codec.read(payload));
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean retryLater(final Task task, final Instant notBefore) throws Exception {
+        final Shard shard = shardOf(task.getId());
+        task.setNotBefore(notBefore);
+        final Long released = redisTemplate.execute(releaseDelayedScript,
+                List.of(shard.leases(), shard.delayed(), shard.tasks(), shard.receipts(), shard.delayedTargets()),
+                task.getId(), String.valueOf(System.currentTimeMillis()), codec.write(task),
+                String.valueOf(notBefore.toEpochMilli()), delayedTarget(task));
+        return released != null && released == 1L;
+    }
+
+    @Override
+    public boolean deadLetter(final Task task, final String reason) {
+        final Shard shard = shardOf(task.getId());
+        final Long released = redisTemplate.execute(releaseExpiredScript,
+                List.of(shard.leases(), shard.failed(), shard.tasks(), shard.receipts()),
+                task.getId(), String.valueOf(System.currentTimeMillis()), "");
+        if (released == null || released != 1L) {
+            return false;
+        }
+        redisTemplate.opsForHash().put(shard.failedReasons(), task.getId(), reason);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public long promoteDue(final int max) {
+        final long now = System.currentTimeMillis();
+        long promoted = 0;
+        final Set<String> signals = new LinkedHashSet<>();
+        for (final Shard shard : shards) {
+            final Map<String, String> due = dueDelayed(shard.delayed(), shard.delayedTargets(), now, max);
+            if (due.isEmpty()) {
+                continue;
+            }
+
+            // Ready lists carry the shard's hash tag, so one call per shard stays in one slot
+            final List<String> keys = new ArrayList<>(List.of(shard.delayed(), shard.delayedTargets()));
+            final Map<String, String> signalByTask = new LinkedHashMap<>();
+            final List<String> args = new ArrayList<>(due.size() * 3 + 1);
+            args.add(String.valueOf(now));
+            for (final Map.Entry<String, String> task : due.entrySet()) {
+                args.add(task.getKey());
+                final String target = task.getValue();
+                if (target == null) {
+                    args.add("0");
+                    args.add("0");
+                    continue;
+                }
+                final int separator = target.indexOf('\n');
+                final String readyQueue = target.substring(0, separator);
+                args.add(keyRef(keys, readyQueue));
+                args.add(keyRef(keys, queuedMarks(readyQueue)));
+                signalByTask.put(task.getKey(), target.substring(separator + 1));
+            }
+
+            final List<String> shardPromoted = redisTemplate.execute(promoteDelayedScript, keys, args.toArray());
+            if (shardPromoted != null) {
+                promoted += shardPromoted.size();
+                shardPromoted.forEach(taskId -> signals.add(signalByTask.get(taskId)));
+            }
+        }
+        signalAll(signals);
+        return promoted;
+    }
+
+    @Override
+    public long failedCount() {
+        long count = 0;
+        for (final Shard shard : shards) {
+            final Long size = redisTemplate.opsForList().size(shard.failed());
+            count += size == null ? 0 : size;
+        }
+        return count;
+    }
+
+    // Pages across shards as if their failed lists were concatenated in shard order; the cursor's
+    // task id names the shard to resume in
+    @Override
+    public List<FailedTask> failedTasks(final String cursor, final int count) throws Exception {
+        FailedCursor after = FailedCursor.parse(cursor);
+        final List<FailedTask> failed = new ArrayList<>(count);
+        for (int i = after == null ? 0 : shards.indexOf(shardOf(after.id())); i < shards.size(); i++) {
+            if (failed.size() >= count) {
+                break;
+            }
+            final Shard shard = shards.get(i);
+            failed.addAll(failedPage(shard.failed(), shard.failedReasons(), shard.tasks(), after, count - failed.size()));
+            after = null;
+        }
+        return failed;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> redriveFailed(final List<Task> tasks) throws Exception {
+        final Map<Shard, List<Task>> byShard = new LinkedHashMap<>();
+        for (final Task task : tasks) {
+            byShard.computeIfAbsent(shardOf(task.getId()), key -> new ArrayList<>()).add(task);
+        }
+
+        final List<String> moved = new ArrayList<>(tasks.size());
+        final Set<String> signals = new LinkedHashSet<>();
+        for (final Map.Entry<Shard, List<Task>> entry : byShard.entrySet()) {
+            final Shard shard = entry.getKey();
+            final List<String> keys = new ArrayList<>(List.of(shard.failed(), shard.failedReasons(), shard.tasks()));
+            final Map<String, String> signalByTask = new LinkedHashMap<>();
+            final List<String> args = new ArrayList<>(entry.getValue().size() * 4);
+            for (final Task task : entry.getValue()) {
+                final String readyQueue = readyKey(task);
+                args.add(task.getId());
+                args.add(codec.write(task));
+                args.add(keyRef(keys, readyQueue));
+                args.add(keyRef(keys, queuedMarks(readyQueue)));
+                signalByTask.put(task.getId(), signalQueueName(task.getType()));
+            }
+
+            final List<String> shardMoved = redisTemplate.execute(redriveFailedScript, keys, args.toArray());
+            if (shardMoved != null) {
+                moved.addAll(shardMoved);
+                shardMoved.forEach(taskId -> signals.add(signalByTask.get(taskId)));
+            }
+        }
+        signalAll(signals);
+        return moved;
+    }
+
+    @Override
+    protected String readyKey(final Task task) {
+        return shardOf(task.getId()).readyQueue(normalizeType(task.getType()), priorityScheduler.levelOf(task.getPriority()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Task> claimBatch(final Shard shard, final String type, final int max) throws Exception {
+        final List<String> receipts = new ArrayList<>(max);
+        final List<String> args = new ArrayList<>(max + 3);
+        args.add(String.valueOf(max));
+        args.add(leaseExpiry(type));
+        args.add(priorityScheduler.nextPreferences(type, max));
+        for (int i = 0; i < max; i++) {
+            receipts.add(newReceipt());
+        }
+        args.addAll(receipts);
+
+        final List<String> keys = new ArrayList<>(9);
+        for (final PriorityLevel level : PriorityLevel.values()) {
+            keys.add(shard.readyQueue(type, level));
+        }
+        keys.add(shard.leases());
+        keys.add(shard.tasks());
+        keys.add(shard.receipts());
+        for (final PriorityLevel level : PriorityLevel.values()) {
+            keys.add(queuedMarks(shard.readyQueue(type, level)));
+        }
+
+        final List<String> payloads = redisTemplate.execute(claimBatchScript, keys, args.toArray());
+        if (payloads == null || payloads.isEmpty()) {
+            return List.of();
+        }
+
+        final List<Task> tasks = new ArrayList<>(payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            final Task task = codec.read(payloads.get(i));
+            task.setReceipt(receipts.get(i));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // Claiming by id only clears a task's queued mark and leaves its id in the ready list, so the
+    // next task a list hands out is the first marked id from its tail. Each entry is that id, or
+    // null if the list is empty or its tail window holds nothing but stale copies.
+    @SuppressWarnings("unchecked")
+    private List<String> readyHeads(final List<String> readyQueues) {
+        final List<Object> tails = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            readyQueues.forEach(readyQueue -> stringConnection.lRange(readyQueue, -READY_TAIL_WINDOW, -1));
+            return null;
+        });
+        final List<Object> marks = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i < readyQueues.size(); i++) {
+                final List<String> tail = (List<String>) tails.get(i);
+                if (tail != null && !tail.isEmpty()) {
+                    stringConnection.hMGet(queuedMarks(readyQueues.get(i)), tail.toArray(new String[0]));
+                }
+            }
+            return null;
+        });
+
+        final List<String> heads = new ArrayList<>(readyQueues.size());
+        int next = 0;
+        for (int i = 0; i < readyQueues.size(); i++) {
+            final List<String> tail = (List<String>) tails.get(i);
+            String head = null;
+            if (tail != null && !tail.isEmpty()) {
+                final List<String> marked = (List<String>) marks.get(next++);
+                for (int j = tail.size() - 1; j >= 0 && head == null; j--) {
+                    if (marked.get(j) != null) {
+                        head = tail.get(j);
+                    }
+                }
+            }
+            heads.add(head);
+        }
+        return heads;
+    }
+
+    private void signalAll(final Collection<String> signalQueues) {
+        if (signalQueues.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            signalQueues.forEach(signalQueue -> signal((StringRedisConnection) connection, signalQueue));
+            return null;
+        });
+    }
+
+    private Shard shardOf(final String taskId) {
+        return shards.size() == 1 ? shards.get(0) : shards.get(Math.floorMod(taskId.hashCode(), shards.size()));
+    }
+
+    // Hash of the task ids still waiting in a ready list; shares the list's hash tag
+    private static String queuedMarks(final String readyQueue) {
+        return readyQueue + ":queued";
+    }
+
+    private static String newReceipt() {
+        return UUID.randomUUID().toString();
+    }
+
+    // All keys of one shard share a {hash tag}, so every Lua script stays within a single cluster slot
+    private record Shard(String prefix, String tasks, String delayed, String delayedTargets,
+                         String leases, String receipts, String failed, String failedReasons) {
+
+        private static Shard of(final String tag, final String queueName, final String processingQueueName,
+                                final String failedQueueName) {
+            final String prefix = queueName + tag;
+            return new Shard(prefix, prefix + ":tasks", prefix + ":delayed", prefix + ":delayed:targets",
+                    processingQueueName + tag, processingQueueName + tag + ":receipts",
+                    failedQueueName + tag, failedQueueName + tag + ":reasons");
+        }
+
+        private String readyQueue(final String type, final PriorityLevel level) {
+            return prefix + ":" + type + level.suffix();
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.QueueService.Engine;
+
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.PriorityScheduler;
+import com.example.QueueService.PriorityScheduler.PriorityLevel;
+import com.example.shared.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamInfo.XInfoGroup;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "queue.engine", havingValue = "streams")
+public class RedisStreamQueueEngine extends AbstractRedisQueueEngine {
+
+    private static final char RECEIPT_SEPARATOR = '/';
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> streamClaimScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> streamClaimByIdScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> streamReclaimScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> streamRedriveFailedScript;
+    private final RedisScript<Long> streamEnqueueScript;
+    private final RedisScript<Long> streamAckScript;
+    private final RedisScript<Long> streamExtendScript;
+    private final RedisScript<Long> streamReleaseDelayedScript;
+    private final RedisScript<Long> streamDeadLetterScript;
+    private final RedisScript<Long> streamPromoteDelayedScript;
+    private final String streamPrefix;
+    private final String streamRegistryName;
+    private final String entriesHashName;
+    private final String group;
+    private final String consumer;
+    private final Set<String> knownGroups = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> reclaimCursors = new ConcurrentHashMap<>();
+
+    public RedisStreamQueueEngine(
+            final StringRedisTemplate redisTemplate,
+            final TaskPayloadCodec codec,
+            final LeaseProperties leaseProperties,
+            final PriorityScheduler priorityScheduler,
+            @SuppressWarnings("rawtypes") final RedisScript<List> streamClaimScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> streamClaimByIdScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> streamReclaimScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> streamRedriveFailedScript,
+            final RedisScript<Long> streamEnqueueScript,
+            final RedisScript<Long> streamAckScript,
+            final RedisScript<Long> streamExtendScript,
+            final RedisScript<Long> streamReleaseDelayedScript,
+            final RedisScript<Long> streamDeadLetterScript,
+            final RedisScript<Long> streamPromoteDelayedScript,
+            @SuppressWarnings("rawtypes") final RedisScript<List> failedPageScript,
+            final RedisScript<Long> outboxLockScript,
+            final RedisScript<Long> outboxTrimScript,
+            @Value("${redis.queue.name:task-queue}") final String queueName,
+            @Value("${redis.failed.queue.name:failed-queue}") final String failedQueueName,
+            @Value("${queue.engine.streams.group:workers}") final String group,
+            @Value("${queue.engine.streams.consumer:${HOSTNAME:queue-service}}") final String consumer
+    ) {
+        super(redisTemplate, codec, leaseProperties, priorityScheduler, failedPageScript, outboxLockScript,
+                outboxTrimScript, queueName, failedQueueName);
+        this.streamClaimScript = streamClaimScript;
+        this.streamClaimByIdScript = streamClaimByIdScript;
+        this.streamReclaimScript = streamReclaimScript;
+        this.streamRedriveFailedScript = streamRedriveFailedScript;
+        this.streamEnqueueScript = streamEnqueueScript;
+        this.streamAckScript = streamAckScript;
+        this.streamExtendScript = streamExtendScript;
+        this.streamReleaseDelayedScript = streamReleaseDelayedScript;
+        this.streamDeadLetterScript = streamDeadLetterScript;
+        this.streamPromoteDelayedScript = streamPromoteDelayedScript;
+        this.streamPrefix = queueName + ":stream:";
+        this.streamRegistryName = queueName + ":streams";
+        this.entriesHashName = queueName + ":entries";
+        this.group = group;
+        this.consumer = consumer;
+
+        log.info("RedisStreamQueueEngine initialized with streams='{}<type>[:high|:low]', group='{}', consumer='{}', delayed='{}', failed='{}'",
+                streamPrefix, group, consumer, delayedSetName, failedQueueName);
+    }
+
+    @Override
+    public void enqueue(final List<Task> tasks) throws Exception {
+        final List<String> payloads = new ArrayList<>(tasks.size());
+        for (final Task task : tasks) {
+            payloads.add(codec.write(task));
+        }
+
+        // Ready tasks go through a script so each entry id is recorded as it is appended
+        final List<String> keys = new ArrayList<>(List.of(tasksHashName, entriesHashName, streamRegistryName));
+        final List<String> args = new ArrayList<>(tasks.size() * 5 + 1);
+        args.add(String.valueOf(MAX_PENDING_SIGNALS));
+        final List<Integer> delayed = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            final Task task = tasks.get(i);
+            if (isDelayed(task)) {
+                delayed.add(i);
+                continue;
+            }
+            args.add(task.getId());
+            args.add(payloads.get(i));
+            args.add(normalizeType(task.getType()));
+            args.add(keyRef(keys, readyKey(task)));
+            args.add(keyRef(keys, signalQueueName(task.getType())));
+        }
+
+        if (!delayed.isEmpty()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (final int i : delayed) {
+                    final Task task = tasks.get(i);
+                    stringConnection.hSet(streamRegistryName, readyKey(task), normalizeType(task.getType()));
+                    pushDelayed(stringConnection, task, payloads.get(i));
+                }
+                return null;
+            });
+        }
+        if (args.size() > 1) {
+            redisTemplate.execute(streamEnqueueScript, keys, args.toArray());
+        }
+        log.debug("Appended {} task(s) to Redis streams, {} of them delayed", tasks.size(), delayed.size());
+    }
+
+    @Override
+    public Task peek(final String type) throws Exception {
+        for (final PriorityLevel level : PriorityLevel.values()) {
+            final MapRecord<String, Object, Object> next = nextUndelivered(streamName(type, level));
+            if (next == null) {
+                continue;
+            }
+
+            final String taskId = (String) next.getValue().get("id");
+            final String payload = (String) redisTemplate.opsForHash().get(tasksHashName, taskId);
+            if (payload == null) {
+                log.warn("Task {} is queued but has no payload in '{}'", taskId, tasksHashName);
+                return null;
+            }
+            return codec.read(payload);
+        }
+        return null;
+    }
+
+    // Entries stay in the stream until acked, so this counts claimed-but-unacked work as well
+    @Override
+    public long depth(final String type) {
+        final List<Object> sizes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            final StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (final PriorityLevel level : PriorityLevel.values()) {
+                stringConnection.xLen(streamName(type, level));
+            }
+            return null;
+        });
+        return sizes.stream().mapToLong(size -> size == null ? 0 : (Long) size).sum();
+    }
+
+    // Entry ids carry the time they were appended, so no payload has to be read
+    @Override
+    public Instant oldestReady(final String type) {
+        Instant oldest = null;
+        for (final PriorityLevel level : PriorityLevel.values()) {
+            final MapRecord<String, Object, Object> next = nextUndelivered(streamName(type, level));
+            if (next != null) {
+                final Instant appendedAt = Instant.ofEpochMilli(next.getId().getTimestamp());
+                oldest = oldest == null || appendedAt.isBefore(oldest) ? appendedAt : oldest;
+            }
+        }
+        return oldest;
+    }
+
+    @Override
+    public long inFlight() {
+        long pending = 0;
+        for (final Object stream : redisTemplate.opsForHash().keys(streamRegistryName)) {
+            ensureGroup((String) stream);
+            final PendingMessagesSummary summary = redisTemplate.opsForStream().pending((String) stream, group);
+            pending += summary == null ? 0 : summary.getTotalPendingMessages();
+        }
+        return pending;
+    }
+
+    // Consumer groups only deliver in stream order, so a task that no consumer has been handed yet
+    // is moved to its type's direct stream and read from there at once. The delivery is then
+    // pending like any other claim, and acks, extensions and lease recovery work on it unchanged.
+    // The entry is looked up in the entries hash, which every append keeps current.
+    @Override
+    @SuppressWarnings("unchecked")
+    public Task claimById(final String taskId) throws Exception {
+        final String payload = (String) redisTemplate.opsForHash().get(tasksHashName, taskId);
+        if (payload == null) {
+            return null;
+        }
+
+        final Task queued = codec.read(payload);
+        final String stream = readyKey(queued);
+        final String direct = directStreamName(queued.getType());
+        ensureGroup(stream);
+        ensureGroup(direct);
+        redisTemplate.opsForHash().put(streamRegistryName, direct, normalizeType(queued.getType()));
+
+        final List<String> claimed = redisTemplate.execute(streamClaimByIdScript,
+                List.of(stream, direct, tasksHashName, entriesHashName), group, consumer, taskId);
+        if (claimed == null || claimed.isEmpty()) {
+            return null;
+        }
+
+        final Task task = codec.read(claimed.get(1));
+        task.setReceipt(receipt(direct, claimed.get(0)));
+        return task;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected List<Task> claimNow(final String type, final int max) throws Exception {
+        final List<String> keys = new ArrayList<>(4);
+        for (final PriorityLevel level : PriorityLevel.values()) {
+            final String stream = streamName(type, level);
+            ensureGroup(stream);
+            keys.add(stream);
+        }
+        keys.add(tasksHashName);
+
+        final List<String> claimed = redisTemplate.execute(streamClaimScript, keys,
+                group, consumer, String.valueOf(max), priorityScheduler.nextPreferences(normalizeType(type), max));
+        if (claimed == null || claimed.isEmpty()) {
+            return List.of();
+        }
+
+        final List<Task> tasks = new ArrayList<>(claimed.size() / 3);
+        for (int i = 0; i < claimed.size(); i += 3) {
+            final String stream = keys.get(Integer.parseInt(claimed.get(i)) - 1);
+            final Task task = codec.read(claimed.get(i + 2));
+            task.setReceipt(receipt(stream, claimed.get(i + 1)));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // A pending entry's lease is its idle time, and XCLAIM can only reset that to zero, not push it
+    // into the future. Extending therefore restarts the idle clock and the requested extension is
+    // not used: the lease always runs for the type's visibility timeout from the last extension, so
+    // heartbeats must come more often than that.
+    @Override
+    public LeaseOutcome extendLease(final String taskId, final String receipt, final Duration extension) {
+        final String[] delivery = delivery(taskId, receipt);
+        if (delivery == null) {
+            return LeaseOutcome.NOT_IN_FLIGHT;
+        }
+        return LeaseOutcome.of(redisTemplate.execute(streamExtendScript, List.of(delivery[0]),
+                group, consumer, delivery[1], taskId));
+    }
+
+    @Override
+    public LeaseOutcome ack(final String taskId, final String receipt) {
+        final String[] delivery = delivery(taskId, receipt);
+        if (delivery == null) {
+            return LeaseOutcome.NOT_IN_FLIGHT;
+        }
+        return LeaseOutcome.of(redisTemplate.execute(streamAckScript, List.of(delivery[0], tasksHashName, entriesHashName),
+                group, delivery[1], taskId));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Task> expiredLeases(final int max) throws Exception {
+        final Map<Object, Object> streams = redisTemplate.opsForHash().entries(streamRegistryName);
+        final List<Task> tasks = new ArrayList<>();
+        for (final Map.Entry<Object, Object> entry : streams.entrySet()) {
+            if (tasks.size() >= max) {
+                break;
+            }
+            final String stream = (String) entry.getKey();
+            ensureGroup(stream);
+
+            final long minIdle = leaseProperties.visibilityTimeoutFor((String) entry.getValue()).toMillis();
+            final List<String> reclaimed = redisTemplate.execute(streamReclaimScript, List.of(stream, tasksHashName),
+                    group, consumer, String.valueOf(minIdle), reclaimCursors.getOrDefault(stream, "0-0"),
+                    String.valueOf(max - tasks.size()));
+            if (reclaimed == null || reclaimed.isEmpty()) {
+                continue;
+            }
+
+            reclaimCursors.put(stream, reclaimed.get(0));
+            for (int i = 1; i < reclaimed.size(); i += 2) {
+                final Task task = codec.read(reclaimed.get(i + 1));
+                task.setReceipt(receipt(stream, reclaimed.get(i)));
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean retryLater(final Task task, final Instant notBefore) throws Exception {
+        final String[] delivery = parseReceipt(task.getReceipt());
+        if (delivery == null) {
+            return false;
+        }
+        task.setReceipt(null);
+        task.setNotBefore(notBefore);
+        final Long released = redisTemplate.execute(streamReleaseDelayedScript,
+                List.of(delivery[0], delayedSetName, tasksHashName, delayedTargetsHashName, entriesHashName),
+                group, delivery[1], task.getId(), codec.write(task),
+                String.valueOf(notBefore.toEpochMilli()), delayedTarget(task));
+        return released != null && released == 1L;
+    }
+
+    @Override
+    public boolean deadLetter(final Task task, final String reason) {
+        final String[] delivery = parseReceipt(task.getReceipt());
+        if (delivery == null) {
+            return false;
+        }
+        final Long released = redisTemplate.execute(streamDeadLetterScript,
+                List.of(delivery[0], failedQueueName, failedReasonsHashName, entriesHashName),
+                group, delivery[1], task.getId(), reason);
+        return released != null && released == 1L;
+    }
+
+    @Override
+    public long promoteDue(final int max) {
+        final long now = System.currentTimeMillis();
+        final Map<String, String> due = dueDelayed(delayedSetName, delayedTargetsHashName, now, max);
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        final List<String> keys = new ArrayList<>(List.of(delayedSetName, delayedTargetsHashName, entriesHashName));
+        final List<String> args = new ArrayList<>(due.size() * 3 + 2);
+        args.add(String.valueOf(now));
+        args.add(String.valueOf(MAX_PENDING_SIGNALS));
+        for (final Map.Entry<String, String> task : due.entrySet()) {
+            args.add(task.getKey());
+            final String target = task.getValue();
+            if (target == null) {
+                args.add("0");
+                args.add("0");
+                continue;
+            }
+            final int separator = target.indexOf('\n');
+            args.add(keyRef(keys, target.substring(0, separator)));
+            args.add(keyRef(keys, target.substring(separator + 1)));
+        }
+
+        final Long promoted = redisTemplate.execute(streamPromoteDelayedScript, keys, args.toArray());
+        return promoted == null ? 0 : promoted;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> redriveFailed(final List<Task> tasks) throws Exception {
+        if (tasks.isEmpty()) {
+            return List.of();
+        }
+
+        final List<String> keys = new ArrayList<>(List.of(failedQueueName, failedReasonsHashName, tasksHashName, entriesHashName));
+        final List<String> args = new ArrayList<>(tasks.size() * 4 + 1);
+        args.add(String.valueOf(MAX_PENDING_SIGNALS));
+        for (final Task task : tasks) {
+            args.add(task.getId());
+            args.add(codec.write(task));
+            args.add(keyRef(keys, readyKey(task)));
+            args.add(keyRef(keys, signalQueueName(task.getType())));
+        }
+
+        final List<String> moved = redisTemplate.execute(streamRedriveFailedScript, keys, args.toArray());
+        return moved == null ? List.of() : moved;
+    }
+
+    @Override
+    protected String readyKey(final Task task) {
+        return streamName(task.getType(), priorityScheduler.levelOf(task.getPriority()));
+    }
+
+    private String streamName(final String type, final PriorityLevel level) {
+        return streamPrefix + normalizeType(type) + level.suffix();
+    }
+
+    private String directStreamName(final String type) {
+        return streamPrefix + normalizeType(type) + ":direct";
+    }
+
+    // The next entry the group would deliver is the first one after its last-delivered id
+    private MapRecord<String, Object, Object> nextUndelivered(final String stream) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(stream))) {
+            return null;
+        }
+        ensureGroup(stream);
+
+        final String lastDelivered = redisTemplate.opsForStream().groups(stream).stream()
+                .filter(info -> group.equals(info.groupName()))
+                .map(XInfoGroup::lastDeliveredId)
+                .findFirst()
+                .orElse("0-0");
+        final List<MapRecord<String, Object, Object>> next = redisTemplate.opsForStream().range(stream,
+                Range.rightUnbounded(Range.Bound.exclusive(lastDelivered)), Limit.limit().count(1));
+        return next == null || next.isEmpty() ? null : next.get(0);
+    }
+
+    private void ensureGroup(final String stream) {
+        if (knownGroups.contains(stream)) {
+            return;
+        }
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(stream.getBytes(StandardCharsets.UTF_8), group, ReadOffset.from("0"), true));
+            log.info("Created consumer group '{}' on stream '{}'", group, stream);
+        } catch (RuntimeException e) {
+            final String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (cause == null || !cause.contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+        knownGroups.add(stream);
+    }
+
+    private static String receipt(final String stream, final String entryId) {
+        return stream + RECEIPT_SEPARATOR + entryId;
+    }
+
+    // Without a receipt the task's current entry stands in for it, so receipt-less acks and
+    // extensions reach whichever delivery is pending, as the other engines do
+    private String[] delivery(final String taskId, final String receipt) {
+        if (receipt == null || receipt.isBlank()) {
+            return parseReceipt((String) redisTemplate.opsForHash().get(entriesHashName, taskId));
+        }
+        return parseReceipt(receipt);
+    }
+
+    private String[] parseReceipt(final String receipt) {
+        final int separator = receipt == null ? -1 : receipt.lastIndexOf(RECEIPT_SEPARATOR);
+        if (separator <= 0 || !receipt.startsWith(streamPrefix)) {
+            return null;
+        }
+        return new String[]{receipt.substring(0, separator), receipt.substring(separator + 1)};
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.QueueService.Engine;
+
+import com.example.shared.Task;
+import com.example.shared.TaskCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Base64;
+
+// Tasks are stored in Redis as Base64 of the binary TaskCodec form, since every script argument
+// and reply passes through the String template. JSON payloads are still read, so tasks written
+// before the switch (or with queue.payload.format=json) decode either way.
+@Slf4j
+@Component
+public class TaskPayloadCodec {
+
+    private final ObjectMapper mapper;
+    private final boolean binary;
+
+    public TaskPayloadCodec(
+            final ObjectMapper mapper,
+            @Value("${queue.payload.format:binary}") final String format
+    ) {
+        this.mapper = mapper;
+        this.binary = !"json".equalsIgnoreCase(format.trim());
+        log.info("Task payloads are written as {}", binary ? "binary" : "JSON");
+    }
+
+    public String write(final Task task) throws IOException {
+        return binary ? Base64.getEncoder().encodeToString(TaskCodec.encode(task)) : mapper.writeValueAsString(task);
+    }
+
+    public Task read(final String payload) throws IOException {
+        if (payload.startsWith("{")) {
+            return mapper.readValue(payload, Task.class);
+        }
+        return TaskCodec.decode(Base64.getDecoder().decode(payload));
+    }
+}
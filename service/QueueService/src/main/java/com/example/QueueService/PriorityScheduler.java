@@ -0,0 +1,82 @@
+package com.example.QueueService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class PriorityScheduler {
+
+    private final PriorityLevel[] cycle;
+    private final Map<String, AtomicLong> cursors = new ConcurrentHashMap<>();
+
+    public PriorityScheduler(
+            @Value("${queue.priority.weights.high:6}") final int highWeight,
+            @Value("${queue.priority.weights.normal:3}") final int normalWeight,
+            @Value("${queue.priority.weights.low:1}") final int lowWeight
+    ) {
+        this.cycle = buildCycle(new int[]{highWeight, normalWeight, lowWeight});
+        log.info("PriorityScheduler initialized with weights high={}, normal={}, low={}",
+                highWeight, normalWeight, lowWeight);
+    }
+
+    public PriorityLevel levelOf(final int priority) {
+        if (priority > 0) return PriorityLevel.HIGH;
+        if (priority < 0) return PriorityLevel.LOW;
+        return PriorityLevel.NORMAL;
+    }
+
+    // One digit per upcoming claim slot of this type: 1 = high, 2 = normal, 3 = low
+    public String nextPreferences(final String type, final int slots) {
+        final long start = cursors.computeIfAbsent(type, key -> new AtomicLong()).getAndAdd(slots);
+        final StringBuilder preferences = new StringBuilder(slots);
+        for (int i = 0; i < slots; i++) {
+            preferences.append(cycle[(int) ((start + i) % cycle.length)].ordinal() + 1);
+        }
+        return preferences.toString();
+    }
+
+    // Smooth weighted round-robin, so levels are interleaved rather than served in bursts.
+    private static PriorityLevel[] buildCycle(final int[] weights) {
+        final PriorityLevel[] levels = PriorityLevel.values();
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = Math.max(1, weights[i]);
+            total += weights[i];
+        }
+
+        final int[] current = new int[weights.length];
+        final List<PriorityLevel> cycle = new ArrayList<>(total);
+        for (int n = 0; n < total; n++) {
+            int best = 0;
+            for (int i = 0; i < weights.length; i++) {
+                current[i] += weights[i];
+                if (current[i] > current[best]) best = i;
+            }
+            current[best] -= total;
+            cycle.add(levels[best]);
+        }
+        return cycle.toArray(new PriorityLevel[0]);
+    }
+
+    public enum PriorityLevel {
+        HIGH(":high"), NORMAL(""), LOW(":low");
+
+        private final String suffix;
+
+        PriorityLevel(final String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String suffix() {
+            return suffix;
+        }
+    }
+}
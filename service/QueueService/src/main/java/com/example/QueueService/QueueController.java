@@ -1,25 +1,36 @@
 package com.example.QueueService;
 
+import com.example.QueueService.Engine.QueueEngine;
 import com.example.shared.Task;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequestMapping("/queue")
 public class QueueController {
 
     private final QueueService queueService;
+    private final DeadLetterService deadLetterService;
 
-    public QueueController(final QueueService queueService) {
+    public QueueController(final QueueService queueService, final DeadLetterService deadLetterService) {
         this.queueService = queueService;
+        this.deadLetterService = deadLetterService;
         log.info("QueueController initialized");
     }
 
     @PostMapping("/enqueue")
-    public ResponseEntity<String> enqueue(@RequestBody final Task task) {
+    public ResponseEntity<?> enqueue(
+            @RequestBody final Task task,
+            @RequestHeader(value = "X-Client-Id", required = false) final String clientId,
+            final HttpServletRequest request
+    ) {
         if (task == null) {
             log.warn("Received null task in enqueue request");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Task cannot be null");
@@ -29,9 +40,15 @@ public class QueueController {
                 task.getId(), task.getType(), task.getStatus());
 
         try {
-            queueService.enqueueTask(task);
+            final QueueService.EnqueueResult result = queueService.enqueueTask(task, clientIdOf(clientId, request));
+            if (result.duplicateOf() != null) {
+                log.info("Task ID={} is a duplicate of task ID={}", task.getId(), result.duplicateOf());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+            }
             log.info("Successfully enqueued task ID={}", task.getId());
             return ResponseEntity.ok(task.toString());
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             log.error("Failed to enqueue task ID={}: {}", task.getId(), e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -39,11 +56,37 @@ public class QueueController {
         }
     }
 
+    @PostMapping("/enqueue/batch")
+    public ResponseEntity<?> enqueueBatch(
+            @RequestBody final List<Task> tasks,
+            @RequestHeader(value = "X-Client-Id", required = false) final String clientId,
+            final HttpServletRequest request
+    ) {
+        if (tasks == null || tasks.isEmpty()) {
+            log.warn("Received empty batch enqueue request");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Tasks cannot be empty");
+        }
+
+        log.info("Received batch enqueue request for {} tasks", tasks.size());
+
+        try {
+            final List<QueueService.EnqueueResult> results = queueService.enqueueTasks(tasks, clientIdOf(clientId, request));
+            log.info("Processed batch enqueue of {} tasks", results.size());
+            return ResponseEntity.ok(results);
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
+        } catch (Exception e) {
+            log.error("Failed to enqueue batch of {} tasks: {}", tasks.size(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to enqueue batch: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/dequeue")
-    public ResponseEntity<?> viewTopItem() {
-        log.info("Received request to view top item in queue");
+    public ResponseEntity<?> viewTopItem(@RequestParam(value = "type", required = false) final String type) {
+        log.info("Received request to view top item in queue for type={}", type);
         try {
-            final Task task = queueService.viewTopItem();
+            final Task task = queueService.viewTopItem(type);
             if (task == null) {
                 log.debug("Queue is empty");
                 return ResponseEntity.status(HttpStatus.NO_CONTENT)
@@ -76,6 +119,78 @@ public class QueueController {
         }
     }
 
+    @PostMapping("/claimNext")
+    public ResponseEntity<?> claimNext(
+            @RequestParam("type") final String type,
+            @RequestParam(value = "waitSeconds", defaultValue = "0") final long waitSeconds
+    ) {
+        log.debug("Received claim-next request for type={}, waitSeconds={}", type, waitSeconds);
+        try {
+            final Task task = queueService.claimNextTask(type, waitSeconds);
+            if (task == null) {
+                return ResponseEntity.status(HttpStatus.NO_CONTENT).body("Queue is empty");
+            }
+            log.info("Claimed task ID={}, type={}", task.getId(), task.getType());
+            return ResponseEntity.ok(task);
+        } catch (Exception e) {
+            log.error("Error while claiming next task of type={}: {}", type, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/claim")
+    public ResponseEntity<?> claim(
+            @RequestParam("type") final String type,
+            @RequestParam(value = "max", defaultValue = "1") final int max,
+            @RequestParam(value = "waitSeconds", defaultValue = "0") final long waitSeconds
+    ) {
+        log.debug("Received claim request for type={}, max={}, waitSeconds={}", type, max, waitSeconds);
+        try {
+            final List<Task> tasks = queueService.claimTasks(type, max, waitSeconds);
+            if (!tasks.isEmpty()) {
+                log.info("Claimed {} task(s) of type={}", tasks.size(), type);
+            }
+            return ResponseEntity.ok(tasks);
+        } catch (Exception e) {
+            log.error("Error while claiming tasks of type={}: {}", type, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/lease/{id}/extend")
+    public ResponseEntity<?> extendLease(
+            @PathVariable("id") final String taskId,
+            @RequestParam(value = "receipt", required = false) final String receipt,
+            @RequestParam(value = "seconds", defaultValue = "0") final long seconds
+    ) {
+        log.debug("Received lease extension request for task ID={}, seconds={}", taskId, seconds);
+        try {
+            return leaseResponse(queueService.extendLease(taskId, receipt, seconds), "Lease extended");
+        } catch (Exception e) {
+            log.error("Error while extending lease of task ID={}: {}", taskId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/ack/{id}")
+    public ResponseEntity<?> ack(
+            @PathVariable("id") final String taskId,
+            @RequestParam(value = "receipt", required = false) final String receipt,
+            @RequestParam(value = "resultUrl", required = false) final String resultUrl
+    ) {
+        log.info("Received ack request for task ID={}", taskId);
+        try {
+            return leaseResponse(queueService.ackTask(taskId, receipt, resultUrl), "Task completed");
+        } catch (Exception e) {
+            log.error("Error while acknowledging task ID={}: {}", taskId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/markTaskAsCompleted")
     public ResponseEntity<?> markTaskAsCompleted(@RequestBody final Task task) {
         if (task == null) {
@@ -86,13 +201,74 @@ public class QueueController {
         log.info("Received mark-as-completed request for task ID={}", task.getId());
 
         try {
-            queueService.markTaskAsCompleted(task);
-            log.info("Successfully marked task ID={} as completed", task.getId());
-            return ResponseEntity.ok(task.toString());
+            return leaseResponse(queueService.markTaskAsCompleted(task), task.toString());
         } catch (Exception e) {
             log.error("Error while marking task ID={} as completed: {}", task.getId(), e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error: " + e.getMessage());
         }
     }
+
+    @GetMapping("/failed")
+    public ResponseEntity<?> listFailed(
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", defaultValue = "50") final int limit,
+            @RequestParam(value = "type", required = false) final String type,
+            @RequestParam(value = "reason", required = false) final String reason
+    ) {
+        log.debug("Received failed-task listing request: cursor={}, limit={}, type={}, reason={}", cursor, limit, type, reason);
+        try {
+            return ResponseEntity.ok(deadLetterService.list(cursor, limit, type, reason));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error while listing failed tasks: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/failed/redrive")
+    public ResponseEntity<?> redriveFailed(
+            @RequestParam(value = "type", required = false) final String type,
+            @RequestParam(value = "reason", required = false) final String reason,
+            @RequestParam(value = "max", defaultValue = "0") final long max
+    ) {
+        log.info("Received redrive request: type={}, reason={}, max={}", type, reason, max);
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(deadLetterService.startRedrive(type, reason, max));
+        } catch (Exception e) {
+            log.error("Error while starting redrive: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/failed/redrive/{jobId}")
+    public ResponseEntity<?> redriveStatus(@PathVariable("jobId") final String jobId) {
+        final DeadLetterService.RedriveStatus status = deadLetterService.redriveStatus(jobId);
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Redrive job not found");
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    private static String clientIdOf(final String clientId, final HttpServletRequest request) {
+        return clientId == null || clientId.isBlank() ? request.getRemoteAddr() : clientId.trim();
+    }
+
+    private static ResponseEntity<?> tooManyRequests(final AdmissionRejectedException e) {
+        final long seconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body("Error: " + e.getMessage());
+    }
+
+    private ResponseEntity<?> leaseResponse(final QueueEngine.LeaseOutcome outcome, final String okBody) {
+        return switch (outcome) {
+            case OK -> ResponseEntity.ok(okBody);
+            case NOT_IN_FLIGHT -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Task is not in flight");
+            case STALE_RECEIPT -> ResponseEntity.status(HttpStatus.CONFLICT).body("Receipt no longer owns this task");
+        };
+    }
 }
@@ -0,0 +1,158 @@
+package com.example.QueueService;
+
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.Engine.QueueEngine;
+import com.example.shared.Task;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Gauges read values cached by a scheduled sampler, so a scrape never touches the queue backend
+@Slf4j
+@Component
+public class QueueMetrics {
+
+    private final MeterRegistry registry;
+    private final QueueEngine queueEngine;
+    private final Duration maxTrackedLease;
+    private final int maxTypes;
+    private final Map<String, TypeGauges> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public QueueMetrics(
+            final MeterRegistry registry,
+            final QueueEngine queueEngine,
+            final LeaseProperties leaseProperties,
+            @Value("${queue.metrics.types:}") final String[] types,
+            @Value("${queue.metrics.max-types:50}") final int maxTypes
+    ) {
+        this.registry = registry;
+        this.queueEngine = queueEngine;
+        this.maxTrackedLease = leaseProperties.getMaxExtension().plus(leaseProperties.getVisibilityTimeout());
+        this.maxTypes = maxTypes;
+        Gauge.builder("queue.inflight", inFlight, AtomicLong::get)
+                .description("Claimed tasks whose lease has not been acked or expired")
+                .register(registry);
+        Arrays.stream(types).filter(type -> !type.isBlank()).forEach(this::gaugesFor);
+        log.info("QueueMetrics initialized for types {}", gauges.keySet());
+    }
+
+    public void enqueued(final List<Task> tasks) {
+        for (final Task task : tasks) {
+            Counter.builder("queue.tasks.enqueued").tag("type", typeTag(task.getType())).register(registry).increment();
+        }
+    }
+
+    public void rejected(final String type, final String reason, final int count) {
+        Counter.builder("queue.tasks.rejected").tag("type", typeTag(type)).tag("reason", reason)
+                .register(registry).increment(count);
+    }
+
+    // Queue wait is measured from when the task became ready, which for retries is their backoff end
+    public void claimed(final String type, final List<Task> tasks, final long claimNanos) {
+        final String tag = typeTag(type);
+        Timer.builder("queue.claim.duration").tag("type", tag)
+                .register(registry).record(Duration.ofNanos(claimNanos));
+
+        final Instant now = Instant.now();
+        final Timer wait = Timer.builder("queue.task.wait").tag("type", tag)
+                .publishPercentileHistogram().register(registry);
+        for (final Task task : tasks) {
+            final Instant readySince = QueueEngine.readySince(task);
+            if (readySince != null && readySince.isBefore(now)) {
+                wait.record(Duration.between(readySince, now));
+            }
+            claims.put(task.getId(), new Claim(tag, System.nanoTime(), task.getCreatedAt()));
+        }
+    }
+
+    // Claims are remembered in memory only, so acks that reach another instance go unmeasured
+    public void acked(final String taskId) {
+        final Claim claim = claims.remove(taskId);
+        if (claim == null) {
+            return;
+        }
+        Timer.builder("queue.task.processing").tag("type", claim.type)
+                .publishPercentileHistogram().register(registry)
+                .record(Duration.ofNanos(System.nanoTime() - claim.claimedAt));
+        if (claim.createdAt != null) {
+            Timer.builder("queue.task.latency").tag("type", claim.type)
+                    .publishPercentileHistogram().register(registry)
+                    .record(Duration.between(claim.createdAt, Instant.now()));
+        }
+    }
+
+    public void recovered(final Task task, final String outcome) {
+        claims.remove(task.getId());
+        Counter.builder("queue.tasks.recovered").tag("type", typeTag(task.getType())).tag("outcome", outcome)
+                .register(registry).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${queue.metrics.sample-interval-ms:5000}")
+    public void sample() {
+        try {
+            inFlight.set(queueEngine.inFlight());
+            for (final Map.Entry<String, TypeGauges> entry : gauges.entrySet()) {
+                entry.getValue().depth.set(queueEngine.depth(entry.getKey()));
+                final Instant oldest = queueEngine.oldestReady(entry.getKey());
+                entry.getValue().oldestAgeMillis.set(oldest == null ? 0
+                        : Math.max(0, Duration.between(oldest, Instant.now()).toMillis()));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sample queue metrics: {}", e.getMessage());
+        }
+
+        final long cutoff = System.nanoTime() - maxTrackedLease.toNanos();
+        claims.values().removeIf(claim -> claim.claimedAt < cutoff);
+    }
+
+    // Types come from clients, so only the first max-types of them get their own series
+    private String typeTag(final String type) {
+        final String normalizedType = normalizeType(type);
+        gaugesFor(normalizedType);
+        return gauges.containsKey(normalizedType) ? normalizedType : "other";
+    }
+
+    private void gaugesFor(final String type) {
+        if (gauges.containsKey(type) || gauges.size() >= maxTypes) {
+            return;
+        }
+        gauges.computeIfAbsent(type, key -> {
+            final TypeGauges typeGauges = new TypeGauges();
+            Gauge.builder("queue.depth", typeGauges.depth, AtomicLong::get).tag("type", key)
+                    .description("Tasks waiting to be claimed")
+                    .register(registry);
+            Gauge.builder("queue.oldest.age", typeGauges.oldestAgeMillis, age -> age.get() / 1000.0).tag("type", key)
+                    .description("Seconds the oldest waiting task has been ready")
+                    .baseUnit("seconds")
+                    .register(registry);
+            return typeGauges;
+        });
+    }
+
+    private static String normalizeType(final String type) {
+        return type == null || type.isBlank() ? "default" : type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class TypeGauges {
+        private final AtomicLong depth = new AtomicLong();
+        private final AtomicLong oldestAgeMillis = new AtomicLong();
+    }
+
+    private record Claim(String type, long claimedAt, Instant createdAt) {}
+}
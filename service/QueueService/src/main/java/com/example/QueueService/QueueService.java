@@ -1,118 +1,211 @@
 package com.example.QueueService;
 
-import com.example.QueueService.Config.TaskDBClient;
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.Config.RetryProperties;
+import com.example.QueueService.Engine.QueueEngine;
+import com.example.QueueService.Engine.QueueEngine.FailedTask;
+import com.example.QueueService.Engine.QueueEngine.LeaseOutcome;
 import com.example.shared.Task;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.shared.TaskStatusUpdate;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @Service
 public class QueueService {
 
-    private static final int MAX_ATTEMPTS = 5;
-    private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper mapper;
-    private final TaskDBClient taskDBClient;
-    private final String queueName;
-    private final String processingQueueName;
-    private final String failedQueueName;
+    private final QueueEngine queueEngine;
+    private final AdmissionControl admissionControl;
+    private final QueueMetrics queueMetrics;
+    private final StatusOutbox statusOutbox;
+    private final LeaseProperties leaseProperties;
+    private final RetryProperties retryProperties;
+    private final long maxClaimWaitSeconds;
+    private final int maxClaimBatchSize;
+    private final int promoteBatchSize;
+    private final Duration idempotencyTtl;
 
     public QueueService(
-            final StringRedisTemplate redisTemplate,
-            final ObjectMapper mapper,
-            final TaskDBClient taskDBClient,
-            @Value("${redis.queue.name:task-queue}") final String queueName,
-            @Value("${redis.processing.queue.name:redis-processing-queue}") final String processingQueueName,
-            @Value("${redis.failed.queue.name:failed-queue}") final String failedQueueName
+            final QueueEngine queueEngine,
+            final AdmissionControl admissionControl,
+            final QueueMetrics queueMetrics,
+            final StatusOutbox statusOutbox,
+            final LeaseProperties leaseProperties,
+            final RetryProperties retryProperties,
+            @Value("${queue.claim.max-wait-seconds:30}") final long maxClaimWaitSeconds,
+            @Value("${queue.claim.max-batch-size:100}") final int maxClaimBatchSize,
+            @Value("${queue.delayed.promote-batch-size:500}") final int promoteBatchSize,
+            @Value("${queue.dedup.ttl:24h}") final Duration idempotencyTtl
     ) {
-        this.redisTemplate = redisTemplate;
-        this.mapper = mapper;
-        this.taskDBClient = taskDBClient;
-        this.queueName = queueName;
-        this.processingQueueName = processingQueueName;
-        this.failedQueueName = failedQueueName;
+        this.queueEngine = queueEngine;
+        this.admissionControl = admissionControl;
+        this.queueMetrics = queueMetrics;
+        this.statusOutbox = statusOutbox;
+        this.leaseProperties = leaseProperties;
+        this.retryProperties = retryProperties;
+        this.maxClaimWaitSeconds = maxClaimWaitSeconds;
+        this.maxClaimBatchSize = maxClaimBatchSize;
+        this.promoteBatchSize = promoteBatchSize;
+        this.idempotencyTtl = idempotencyTtl;
 
-        log.info("QueueService initialized with queues: main='{}', processing='{}', failed='{}'",
-                queueName, processingQueueName, failedQueueName);
+        log.info("QueueService initialized with engine {}", queueEngine.getClass().getSimpleName());
     }
 
-    public void enqueueTask(final Task task) throws Exception {
-        log.info("Enqueuing task {} (type: {}) into queue '{}'", task.getId(), task.getType(), queueName);
+    public EnqueueResult enqueueTask(final Task task, final String clientId) throws Exception {
+        log.info("Enqueuing task {} (type: {}, priority: {}, notBefore: {})",
+                task.getId(), task.getType(), task.getPriority(), task.getNotBefore());
+
+        // Duplicates are answered before admission, so a retried request does not spend the client's
+        // rate or count against the queue depth a second time
+        final String key = idempotencyKeyOf(task);
+        if (key != null) {
+            final String holder = queueEngine.reserveIdempotencyKeys(Map.of(key, task.getId()), idempotencyTtl).get(key);
+            if (holder != null) {
+                log.info("Rejected task {}: idempotency key '{}' is held by task {}", task.getId(), key, holder);
+                queueMetrics.rejected(task.getType(), "duplicate", 1);
+                return EnqueueResult.duplicate(task.getId(), holder);
+            }
+        }
+
+        try {
+            admissionControl.admit(clientId, Map.of(typeOf(task), 1));
+        } catch (AdmissionRejectedException e) {
+            if (key != null) {
+                queueEngine.releaseIdempotencyKeys(List.of(key));
+            }
+            throw e;
+        }
 
         try {
-            final String json = mapper.writeValueAsString(task);
-            redisTemplate.opsForList().leftPush(queueName, json);
-            log.debug("Task {} serialized and pushed to Redis queue", task.getId());
+            try {
+                queueEngine.enqueue(List.of(task));
+            } catch (Exception e) {
+                if (key != null) {
+                    queueEngine.releaseIdempotencyKeys(List.of(key));
+                }
+                throw e;
+            }
+            queueMetrics.enqueued(List.of(task));
+            log.debug("Task {} stored and pushed to the queue", task.getId());
 
-            taskDBClient.updateTaskStatus(task.getId(), "queued", null);
-            log.info("Task {} marked as 'queued' in database", task.getId());
+            final String status = initialStatus(task);
+            statusOutbox.record(task.getId(), status, null);
+            log.info("Task {} recorded as '{}'", task.getId(), status);
+            return new EnqueueResult(task.getId(), status, null, null);
         } catch (Exception e) {
             log.error("Failed to enqueue task {}: {}", task.getId(), e.getMessage(), e);
             throw e;
         }
     }
 
-    public Task viewTopItem() throws Exception {
-        log.debug("Viewing top item from queue '{}'", queueName);
+    public List<EnqueueResult> enqueueTasks(final List<Task> tasks, final String clientId) throws Exception {
+        log.info("Enqueuing batch of {} tasks", tasks.size());
+
+        final List<EnqueueResult> results = new ArrayList<>(tasks.size());
+        final Map<Integer, Task> candidates = new LinkedHashMap<>();
+        final Map<String, String> taskIdsByKey = new LinkedHashMap<>();
+        final Set<String> seen = new HashSet<>();
+        for (final Task task : tasks) {
+            if (task == null || task.getId() == null || task.getId().isBlank()) {
+                results.add(new EnqueueResult(task == null ? null : task.getId(), "rejected", "Task id is required", null));
+                continue;
+            }
+            if (!seen.add(task.getId())) {
+                results.add(new EnqueueResult(task.getId(), "rejected", "Duplicate task id in batch", null));
+                continue;
+            }
+            final String key = idempotencyKeyOf(task);
+            if (key != null && taskIdsByKey.putIfAbsent(key, task.getId()) != null) {
+                results.add(EnqueueResult.duplicate(task.getId(), taskIdsByKey.get(key)));
+                continue;
+            }
+            candidates.put(results.size(), task);
+            results.add(null);
+        }
+
+        final Map<String, String> duplicates = queueEngine.reserveIdempotencyKeys(taskIdsByKey, idempotencyTtl);
+        final List<Task> accepted = new ArrayList<>(candidates.size());
+        for (final Map.Entry<Integer, Task> candidate : candidates.entrySet()) {
+            final Task task = candidate.getValue();
+            final String holder = duplicates.get(idempotencyKeyOf(task));
+            if (holder != null) {
+                results.set(candidate.getKey(), EnqueueResult.duplicate(task.getId(), holder));
+                queueMetrics.rejected(task.getType(), "duplicate", 1);
+                continue;
+            }
+            accepted.add(task);
+            results.set(candidate.getKey(), new EnqueueResult(task.getId(), initialStatus(task), null, null));
+        }
+
+        if (accepted.isEmpty()) {
+            return results;
+        }
+
+        // Only the tasks that will actually be enqueued are charged against the rate and depth limits
+        final Set<String> reserved = new HashSet<>(taskIdsByKey.keySet());
+        reserved.removeAll(duplicates.keySet());
+        final Map<String, Integer> countsByType = new HashMap<>();
+        accepted.forEach(task -> countsByType.merge(typeOf(task), 1, Integer::sum));
+        try {
+            admissionControl.admit(clientId, countsByType);
+            queueEngine.enqueue(accepted);
+        } catch (Exception e) {
+            queueEngine.releaseIdempotencyKeys(reserved);
+            throw e;
+        }
+        queueMetrics.enqueued(accepted);
+        log.info("Pushed {} tasks to the queue in one batch ({} duplicate(s) rejected)", accepted.size(), duplicates.size());
+
+        final List<TaskStatusUpdate> updates = new ArrayList<>(accepted.size());
+        accepted.forEach(task -> updates.add(new TaskStatusUpdate(task.getId(), initialStatus(task), null)));
+        statusOutbox.recordAll(updates);
+        log.debug("Recorded status of {} enqueued tasks", updates.size());
+
+        return results;
+    }
+
+    public Task viewTopItem(final String type) throws Exception {
+        log.debug("Viewing top item for type '{}'", type);
         try {
-            final String json = redisTemplate.opsForList().index(queueName, 0);
-            if (json == null) {
-                log.debug("Queue '{}' is empty", queueName);
+            final Task task = queueEngine.peek(type);
+            if (task == null) {
+                log.debug("Queues for type '{}' are empty", type);
                 return null;
             }
 
-            final Task task = mapper.readValue(json, Task.class);
             log.info("Peeked top task: id={}, type={}", task.getId(), task.getType());
             return task;
         } catch (Exception e) {
-            log.error("Failed to view top item from queue '{}': {}", queueName, e.getMessage(), e);
+            log.error("Failed to view top item for type '{}': {}", type, e.getMessage(), e);
             throw e;
         }
     }
 
     public Task dequeueTask(final String taskId) throws Exception {
-        log.info("Dequeuing task {} from '{}'", taskId, queueName);
+        log.info("Dequeuing task {}", taskId);
 
         try {
-            final List<String> allTasks = redisTemplate.opsForList().range(queueName, 0, -1);
-            if (allTasks == null || allTasks.isEmpty()) {
-                log.debug("Queue '{}' is empty", queueName);
+            final long started = System.nanoTime();
+            final Task task = queueEngine.claimById(taskId);
+            if (task == null) {
                 return null;
             }
+            queueMetrics.claimed(task.getType(), List.of(task), System.nanoTime() - started);
 
-            String taskJson = null;
-            for (String json : allTasks) {
-                try {
-                    final Task task = mapper.readValue(json, Task.class);
-                    if (taskId.equals(task.getId())) {
-                        taskJson = json;
-                        log.debug("Found task {} in queue", taskId);
-                        break;
-                    }
-                } catch (Exception ex) {
-                    log.warn("Failed to parse JSON while scanning queue: {}", ex.getMessage());
-                }
-            }
-
-            if (taskJson == null) {
-                log.warn("Task {} not found in queue '{}'", taskId, queueName);
-                return null;
-            }
-
-            redisTemplate.opsForList().remove(queueName, 1, taskJson);
-            redisTemplate.opsForList().leftPush(processingQueueName, taskJson);
-            log.info("Moved task {} from '{}' to '{}'", taskId, queueName, processingQueueName);
-
-            final Task task = mapper.readValue(taskJson, Task.class);
             task.setStartedAt(Instant.now());
-            taskDBClient.updateTaskStatus(task.getId(), "processing", null);
+            statusOutbox.record(task.getId(), "processing", null);
             log.info("Task {} marked as 'processing'", task.getId());
 
             return task;
@@ -122,51 +215,176 @@ public class QueueService {
         }
     }
 
-    public void markTaskAsCompleted(final Task task) throws Exception {
-        log.info("Marking task {} as completed (result key: {})", task.getId(), task.getResultUrl());
+    public Task claimNextTask(final String type, final long waitSeconds) throws Exception {
+        final List<Task> claimed = claimTasks(type, 1, waitSeconds);
+        return claimed.isEmpty() ? null : claimed.get(0);
+    }
+
+    public List<Task> claimTasks(final String type, final int max, final long waitSeconds) throws Exception {
+        final int limit = Math.max(1, Math.min(max, maxClaimBatchSize));
+        log.debug("Claiming up to {} tasks of type '{}' (wait {}s)", limit, type, waitSeconds);
+
         try {
-            final String json = mapper.writeValueAsString(task);
-            redisTemplate.opsForList().remove(processingQueueName, 1, json);
-            taskDBClient.markTaskCompleted(task.getId(), task.getResultUrl());
-            log.info("Task {} removed from processing queue and marked completed", task.getId());
+            final long started = System.nanoTime();
+            final List<Task> tasks = queueEngine.claim(type, limit, Math.min(waitSeconds, maxClaimWaitSeconds));
+            if (tasks.isEmpty()) {
+                log.debug("No claimable task of type '{}'", type);
+                return List.of();
+            }
+            queueMetrics.claimed(type, tasks, System.nanoTime() - started);
+
+            final Instant startedAt = Instant.now();
+            final List<TaskStatusUpdate> updates = new ArrayList<>(tasks.size());
+            for (final Task task : tasks) {
+                task.setStartedAt(startedAt);
+                updates.add(new TaskStatusUpdate(task.getId(), "processing", null));
+            }
+            statusOutbox.recordAll(updates);
+            log.info("Claimed {} task(s) of type '{}'", tasks.size(), type);
+
+            return tasks;
         } catch (Exception e) {
-            log.error("Failed to mark task {} as completed: {}", task.getId(), e.getMessage(), e);
+            log.error("Failed to claim tasks of type '{}': {}", type, e.getMessage(), e);
             throw e;
         }
     }
 
-    @Scheduled(fixedDelay = 60000)
+    public LeaseOutcome extendLease(final String taskId, final String receipt, final long seconds) {
+        final Duration requested = seconds > 0 ? Duration.ofSeconds(seconds) : leaseProperties.getVisibilityTimeout();
+        final Duration extension = requested.compareTo(leaseProperties.getMaxExtension()) > 0
+                ? leaseProperties.getMaxExtension() : requested;
+
+        final LeaseOutcome outcome = queueEngine.extendLease(taskId, receipt, extension);
+        if (outcome != LeaseOutcome.OK) {
+            log.warn("Cannot extend lease of task {}: {}", taskId, outcome);
+            return outcome;
+        }
+
+        log.debug("Extended lease of task {} by {}", taskId, extension);
+        return outcome;
+    }
+
+    public LeaseOutcome ackTask(final String taskId, final String receipt, final String resultUrl) throws Exception {
+        log.info("Acknowledging task {} (result key: {})", taskId, resultUrl);
+        try {
+            final LeaseOutcome outcome = queueEngine.ack(taskId, receipt);
+            if (outcome != LeaseOutcome.OK) {
+                log.warn("Ignoring ack for task {}: {}", taskId, outcome);
+                return outcome;
+            }
+            queueMetrics.acked(taskId);
+
+            statusOutbox.record(taskId, "completed", resultUrl);
+            log.info("Task {} removed from the queue and marked completed", taskId);
+            return outcome;
+        } catch (Exception e) {
+            log.error("Failed to acknowledge task {}: {}", taskId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    public LeaseOutcome markTaskAsCompleted(final Task task) throws Exception {
+        return ackTask(task.getId(), task.getReceipt(), task.getResultUrl());
+    }
+
+    @Scheduled(fixedDelayString = "${queue.lease.recovery-interval-ms:5000}")
     public void recoverStuckTasks() throws Exception {
-        final long VISIBILITY_MS = 5 * 60_000;
-        final List<String> items = redisTemplate.opsForList().range(processingQueueName, 0, -1);
-        if (items == null || items.isEmpty()) {
-            log.debug("No items found in processing queue for recovery");
-            return;
-        }
-
-        log.info("Recovering stuck tasks from '{}'", processingQueueName);
-        for (final String json : items) {
-            final Task task = mapper.readValue(json, Task.class);
-            if (task.getStartedAt() == null) continue;
-
-            final long ageMs = Instant.now().toEpochMilli() - task.getStartedAt().toEpochMilli();
-            if (ageMs < VISIBILITY_MS) continue;
-
-            if (task.getAttempts() >= MAX_ATTEMPTS) {
-                redisTemplate.opsForList().leftPush(failedQueueName, json);
-                redisTemplate.opsForList().remove(processingQueueName, 1, json);
-                taskDBClient.markTaskFailed(task.getId(), "max retries reached");
-                log.warn("Task {} moved to failed queue after {} attempts", task.getId(), task.getAttempts());
-                continue;
+        final int batchSize = leaseProperties.getRecoveryBatchSize();
+        int recovered = 0;
+        List<Task> expired;
+        do {
+            expired = queueEngine.expiredLeases(batchSize);
+            for (final Task task : expired) {
+                if (recoverExpiredTask(task)) {
+                    recovered++;
+                }
             }
+        } while (expired.size() == batchSize);
+
+        if (recovered > 0) {
+            log.info("Recovered {} task(s) with expired leases", recovered);
+        }
+    }
+
+    private boolean recoverExpiredTask(final Task task) throws Exception {
+        if (task.getAttempts() >= retryProperties.getMaxAttempts()) {
+            if (!queueEngine.deadLetter(task, "max retries reached")) {
+                return false;
+            }
+            queueMetrics.recovered(task, "dead_lettered");
+            statusOutbox.record(task.getId(), "failed: max retries reached", null);
+            log.warn("Task {} moved to failed queue after {} attempts", task.getId(), task.getAttempts());
+            return true;
+        }
 
-            task.setAttempts(task.getAttempts() + 1);
+        task.setAttempts(task.getAttempts() + 1);
+        task.setStartedAt(null);
+        final Instant notBefore = Instant.now().plus(retryProperties.backoffFor(task.getAttempts()));
+        if (!queueEngine.retryLater(task, notBefore)) {
+            return false;
+        }
+        queueMetrics.recovered(task, "retried");
+        statusOutbox.record(task.getId(), "scheduled", null);
+        log.info("Recovered stuck task {} (retry #{} not before {})", task.getId(), task.getAttempts(), notBefore);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${queue.delayed.promote-interval-ms:1000}")
+    public void promoteDueTasks() {
+        long promoted = 0;
+        long batch;
+        do {
+            batch = queueEngine.promoteDue(promoteBatchSize);
+            promoted += batch;
+        } while (batch == promoteBatchSize);
+
+        if (promoted > 0) {
+            log.info("Promoted {} delayed task(s)", promoted);
+        }
+    }
+
+    public long failedCount() {
+        return queueEngine.failedCount();
+    }
+
+    public List<FailedTask> failedTasks(final String cursor, final int count) throws Exception {
+        return queueEngine.failedTasks(cursor, count);
+    }
+
+    public List<String> redriveFailed(final List<Task> tasks) throws Exception {
+        for (final Task task : tasks) {
+            task.setAttempts(0);
             task.setStartedAt(null);
-            final String updated = mapper.writeValueAsString(task);
-            redisTemplate.opsForList().remove(processingQueueName, 1, json);
-            redisTemplate.opsForList().leftPush(queueName, updated);
-            taskDBClient.updateTaskStatus(task.getId(), "queued", null);
-            log.info("Recovered stuck task {} (retry #{})", task.getId(), task.getAttempts());
+            task.setNotBefore(null);
+        }
+
+        final List<String> moved = queueEngine.redriveFailed(tasks);
+        if (moved.isEmpty()) {
+            return moved;
+        }
+
+        final List<TaskStatusUpdate> updates = new ArrayList<>(moved.size());
+        moved.forEach(taskId -> updates.add(new TaskStatusUpdate(taskId, "queued", null)));
+        statusOutbox.recordAll(updates);
+        return moved;
+    }
+
+    private static String typeOf(final Task task) {
+        return task.getType() == null ? "" : task.getType();
+    }
+
+    private static String idempotencyKeyOf(final Task task) {
+        final String key = task.getIdempotencyKey();
+        return key == null || key.isBlank() ? null : key.trim();
+    }
+
+    private static String initialStatus(final Task task) {
+        return task.getNotBefore() != null && task.getNotBefore().isAfter(Instant.now()) ? "scheduled" : "queued";
+    }
+
+    public record EnqueueResult(String id, String status, String error, String duplicateOf) {
+        static EnqueueResult duplicate(final String id, final String holder) {
+            return new EnqueueResult(id, "duplicate", "Idempotency key already used", holder);
         }
     }
 }
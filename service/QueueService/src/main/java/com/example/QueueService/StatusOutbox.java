@@ -0,0 +1,177 @@
+package com.example.QueueService;
+
+import com.example.QueueService.Config.TaskDBClient;
+import com.example.QueueService.Engine.QueueEngine;
+import com.example.shared.TaskStatusUpdate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import feign.FeignException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Status writes are appended to the engine's outbox on the request path and written to
+// TaskDBService in batches by a single flusher. Batches leave the outbox only once written, in
+// order, so updates for one task reach the database in the order they happened. The flusher
+// renews its lock before every batch, and the lock outlives the slowest possible write, so a
+// second instance cannot start on the same batch while one is still being written.
+@Slf4j
+@Component
+public class StatusOutbox {
+
+    private final QueueEngine queueEngine;
+    private final TaskDBClient taskDBClient;
+    private final ObjectMapper mapper;
+    private final int batchSize;
+    private final Duration lockTtl;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final String owner = UUID.randomUUID().toString();
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private volatile boolean hasPending;
+    private int consecutiveFailures;
+    private long retryAtNanos;
+
+    public StatusOutbox(
+            final QueueEngine queueEngine,
+            final TaskDBClient taskDBClient,
+            final ObjectMapper mapper,
+            @Value("${queue.outbox.batch-size:200}") final int batchSize,
+            @Value("${queue.outbox.lock-ttl:30s}") final Duration lockTtl,
+            @Value("${queue.outbox.initial-backoff:1s}") final Duration initialBackoff,
+            @Value("${queue.outbox.max-backoff:1m}") final Duration maxBackoff,
+            @Value("${spring.cloud.openfeign.client.config.task-db-service.connect-timeout:10000}") final long connectTimeoutMs,
+            @Value("${spring.cloud.openfeign.client.config.task-db-service.read-timeout:60000}") final long readTimeoutMs
+    ) {
+        this.queueEngine = queueEngine;
+        this.taskDBClient = taskDBClient;
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+        // A write can take up to the Feign timeouts; the margin covers reading and trimming the batch
+        final Duration slowestWrite = Duration.ofMillis(connectTimeoutMs + readTimeoutMs).plusSeconds(5);
+        if (lockTtl.compareTo(slowestWrite) < 0) {
+            log.warn("Status outbox lock TTL {} is shorter than the slowest database write, using {}", lockTtl, slowestWrite);
+        }
+        this.lockTtl = lockTtl.compareTo(slowestWrite) < 0 ? slowestWrite : lockTtl;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        log.info("StatusOutbox initialized (batch={}, lock TTL {}, backoff {}..{})",
+                batchSize, this.lockTtl, initialBackoff, maxBackoff);
+    }
+
+    public void record(final String taskId, final String status, final String resultUrl) {
+        recordAll(List.of(new TaskStatusUpdate(taskId, status, resultUrl)));
+    }
+
+    // Never fails the caller: the queue change being recorded has already happened. Records the
+    // engine cannot take are kept in memory, in order, and moved into the outbox by the next flush.
+    public void recordAll(final List<TaskStatusUpdate> updates) {
+        final List<String> records = new ArrayList<>(updates.size());
+        for (final TaskStatusUpdate update : updates) {
+            try {
+                records.add(mapper.writeValueAsString(update));
+            } catch (JsonProcessingException e) {
+                log.error("Dropping unserializable status update for task {}: {}", update.getId(), e.getMessage());
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        if (!hasPending) {
+            try {
+                queueEngine.appendOutbox(records);
+                return;
+            } catch (Exception e) {
+                log.warn("Status outbox unavailable, keeping {} update(s) in memory: {}", records.size(), e.getMessage());
+            }
+        }
+        synchronized (pending) {
+            pending.addAll(records);
+            hasPending = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${queue.outbox.flush-interval-ms:200}")
+    public synchronized void flush() {
+        if (consecutiveFailures > 0 && System.nanoTime() - retryAtNanos < 0) {
+            return;
+        }
+
+        long flushed = 0;
+        try {
+            appendPending();
+            List<String> head;
+            while (queueEngine.acquireOutboxLock(owner, lockTtl)
+                    && !(head = queueEngine.outboxHead(batchSize)).isEmpty()) {
+                write(head);
+                if (!queueEngine.trimOutbox(owner, head)) {
+                    log.warn("Lost the status outbox lock while writing {} update(s), leaving the outbox to its new owner",
+                            head.size());
+                    break;
+                }
+                flushed += head.size();
+                if (head.size() < batchSize) {
+                    break;
+                }
+            }
+            consecutiveFailures = 0;
+        } catch (Exception e) {
+            consecutiveFailures++;
+            final Duration backoff = backoff();
+            retryAtNanos = System.nanoTime() + backoff.toNanos();
+            log.warn("Status outbox flush failed ({} in a row), retrying in {}: {}",
+                    consecutiveFailures, backoff, e.getMessage());
+        }
+
+        if (flushed > 0) {
+            log.debug("Flushed {} status update(s) to the database", flushed);
+        }
+    }
+
+    private void appendPending() throws Exception {
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            queueEngine.appendOutbox(new ArrayList<>(pending));
+            log.info("Moved {} held status update(s) into the outbox", pending.size());
+            pending.clear();
+            hasPending = false;
+        }
+    }
+
+    // A 4xx means the batch will never be accepted, so it is dropped instead of blocking the outbox
+    private void write(final List<String> records) throws Exception {
+        final List<TaskStatusUpdate> updates = new ArrayList<>(records.size());
+        for (final String record : records) {
+            try {
+                updates.add(mapper.readValue(record, TaskStatusUpdate.class));
+            } catch (Exception e) {
+                log.error("Dropping unreadable status outbox record '{}': {}", record, e.getMessage());
+            }
+        }
+
+        try {
+            taskDBClient.updateTaskStatuses(updates);
+        } catch (FeignException e) {
+            if (e.status() < 400 || e.status() >= 500) {
+                throw e;
+            }
+            log.error("Dropping {} status update(s) rejected by the database with HTTP {}: {}",
+                    updates.size(), e.status(), e.contentUTF8());
+        }
+    }
+
+    private Duration backoff() {
+        final double exponential = initialBackoff.toMillis() * Math.pow(2, Math.min(consecutiveFailures - 1, 20));
+        return Duration.ofMillis((long) Math.min(exponential, maxBackoff.toMillis()));
+    }
+}
@@ -0,0 +1,15 @@
+-- KEYS[1] in-flight sorted set, task id scored by lease expiry (epoch ms)
+-- KEYS[2] task id -> receipt hash for in-flight tasks
+-- KEYS[3] task id -> payload hash
+-- ARGV[1] task id
+-- ARGV[2] receipt of the caller's claim, empty to skip the check
+if not redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+    return 0
+end
+if ARGV[2] ~= '' and redis.call('HGET', KEYS[2], ARGV[1]) ~= ARGV[2] then
+    return -1
+end
+redis.call('ZREM', KEYS[1], ARGV[1])
+redis.call('HDEL', KEYS[2], ARGV[1])
+redis.call('HDEL', KEYS[3], ARGV[1])
+return 1
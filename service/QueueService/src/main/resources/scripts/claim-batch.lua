@@ -0,0 +1,53 @@
+-- KEYS[1] high priority ready list of task ids for one task type
+-- KEYS[2] normal priority ready list
+-- KEYS[3] low priority ready list
+-- KEYS[4] in-flight sorted set, task id scored by lease expiry (epoch ms)
+-- KEYS[5] task id -> payload hash
+-- KEYS[6] task id -> receipt hash for in-flight tasks
+-- KEYS[7..9] task id -> "1" hashes marking the tasks still waiting in each ready list
+-- ARGV[1] maximum number of tasks to claim
+-- ARGV[2] lease expiry for the claimed tasks (epoch ms)
+-- ARGV[3] preferred ready list per claim slot, one digit (1-3) per slot
+-- ARGV[4..] one receipt per claimable slot, handed out in order
+-- Ids without a mark were already claimed by id and are stale copies, so they are dropped
+local max = tonumber(ARGV[1])
+local exhausted = {}
+
+local function pop(level)
+    if exhausted[level] then
+        return nil
+    end
+    while true do
+        local id = redis.call('RPOP', KEYS[level])
+        if not id then
+            exhausted[level] = true
+            return nil
+        end
+        if redis.call('HDEL', KEYS[6 + level], id) == 1 then
+            return id
+        end
+    end
+end
+
+local claimed = {}
+local slot = 0
+while #claimed < max do
+    slot = slot + 1
+    local id = pop(tonumber(string.sub(ARGV[3], slot, slot)) or 2)
+    local level = 1
+    while not id and level <= 3 do
+        id = pop(level)
+        level = level + 1
+    end
+    if not id then
+        break
+    end
+
+    local json = redis.call('HGET', KEYS[5], id)
+    if json then
+        redis.call('ZADD', KEYS[4], ARGV[2], id)
+        redis.call('HSET', KEYS[6], id, ARGV[4 + #claimed])
+        claimed[#claimed + 1] = json
+    end
+end
+return claimed
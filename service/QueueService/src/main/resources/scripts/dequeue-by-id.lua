@@ -0,0 +1,15 @@
+-- KEYS[1] task id -> "1" hash marking the tasks still waiting in the ready list
+-- KEYS[2] in-flight sorted set, task id scored by lease expiry (epoch ms)
+-- KEYS[3] task id -> payload hash
+-- KEYS[4] task id -> receipt hash for in-flight tasks
+-- ARGV[1] task id
+-- ARGV[2] lease expiry (epoch ms)
+-- ARGV[3] receipt for this claim
+-- The id is left in the ready list, where removing it would scan the backlog. Clearing its mark
+-- makes it a stale copy that claim-batch.lua drops when it pops it.
+if redis.call('HDEL', KEYS[1], ARGV[1]) == 0 then
+    return false
+end
+redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+redis.call('HSET', KEYS[4], ARGV[1], ARGV[3])
+return redis.call('HGET', KEYS[3], ARGV[1])
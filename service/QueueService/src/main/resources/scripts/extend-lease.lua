@@ -0,0 +1,13 @@
+-- KEYS[1] in-flight sorted set, task id scored by lease expiry (epoch ms)
+-- KEYS[2] task id -> receipt hash for in-flight tasks
+-- ARGV[1] task id
+-- ARGV[2] new lease expiry (epoch ms)
+-- ARGV[3] receipt of the caller's claim, empty to skip the check
+if not redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+    return 0
+end
+if ARGV[3] ~= '' and redis.call('HGET', KEYS[2], ARGV[1]) ~= ARGV[3] then
+    return -1
+end
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+return 1
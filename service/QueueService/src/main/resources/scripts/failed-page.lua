@@ -0,0 +1,19 @@
+-- KEYS[1] failed list of task ids, newest first
+-- ARGV[1] task id the previous page ended at, empty to start at the newest failure
+-- ARGV[2] number of failures that were older than that task
+-- ARGV[3] page size
+-- Returns the index of the first id and the list length, then the ids
+local size = redis.call('LLEN', KEYS[1])
+local start = 0
+if ARGV[1] ~= '' then
+    local index = redis.call('LPOS', KEYS[1], ARGV[1])
+    if index then
+        start = index + 1
+    else
+        start = math.max(0, size - tonumber(ARGV[2]))
+    end
+end
+local ids = redis.call('LRANGE', KEYS[1], start, start + tonumber(ARGV[3]) - 1)
+table.insert(ids, 1, tostring(size))
+table.insert(ids, 1, tostring(start))
+return ids
@@ -0,0 +1,9 @@
+-- KEYS[1] outbox lock
+-- ARGV[1] owner
+-- ARGV[2] lock ttl (ms)
+local holder = redis.call('GET', KEYS[1])
+if holder and holder ~= ARGV[1] then
+    return 0
+end
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+return 1
@@ -0,0 +1,19 @@
+-- KEYS[1] outbox list
+-- KEYS[2] outbox lock, in the same slot as the outbox
+-- ARGV[1] owner
+-- ARGV[2..n] records the owner wrote, which must still be the head of the outbox
+if redis.call('GET', KEYS[2]) ~= ARGV[1] then
+    return -1
+end
+local count = #ARGV - 1
+local head = redis.call('LRANGE', KEYS[1], 0, count - 1)
+if #head ~= count then
+    return 0
+end
+for i = 1, count do
+    if head[i] ~= ARGV[i + 1] then
+        return 0
+    end
+end
+redis.call('LTRIM', KEYS[1], count, -1)
+return 1
@@ -0,0 +1,24 @@
+-- KEYS[1] delayed sorted set, task id scored by not-before time (epoch ms)
+-- KEYS[2] task id -> "<ready list>\n<signal list>" hash for delayed tasks
+-- KEYS[3..] ready lists of the due tasks and their queued marks, all in this shard's slot
+-- ARGV[1] current time (epoch ms)
+-- ARGV[2..] triples of (task id, index into KEYS of its ready list or 0 if it has none,
+--           index of the task id -> "1" hash marking the list's waiting tasks)
+-- Returns the promoted ids. The caller reads the due tasks first, so every id is checked again
+-- here and skipped if another promoter moved it or it was delayed again in the meantime.
+local promoted = {}
+for i = 2, #ARGV, 3 do
+    local id = ARGV[i]
+    local score = redis.call('ZSCORE', KEYS[1], id)
+    if score and tonumber(score) <= tonumber(ARGV[1]) then
+        redis.call('ZREM', KEYS[1], id)
+        redis.call('HDEL', KEYS[2], id)
+        local ready = tonumber(ARGV[i + 1])
+        if ready > 0 then
+            redis.call('HSET', KEYS[tonumber(ARGV[i + 2])], id, '1')
+            redis.call('LPUSH', KEYS[ready], id)
+            table.insert(promoted, id)
+        end
+    end
+end
+return promoted
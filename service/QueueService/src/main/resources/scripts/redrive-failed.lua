@@ -0,0 +1,18 @@
+-- KEYS[1] failed list of task ids
+-- KEYS[2] task id -> failure reason hash
+-- KEYS[3] task id -> payload hash
+-- KEYS[4..] ready lists the tasks go back to and their queued marks, all in this shard's slot
+-- ARGV[1..] groups of (task id, reset payload, index into KEYS of its ready list,
+--           index of the task id -> "1" hash marking the list's waiting tasks)
+local moved = {}
+for i = 1, #ARGV, 4 do
+    local id = ARGV[i]
+    if redis.call('LREM', KEYS[1], 1, id) > 0 then
+        redis.call('HDEL', KEYS[2], id)
+        redis.call('HSET', KEYS[3], id, ARGV[i + 1])
+        redis.call('HSET', KEYS[tonumber(ARGV[i + 3])], id, '1')
+        redis.call('LPUSH', KEYS[tonumber(ARGV[i + 2])], id)
+        table.insert(moved, id)
+    end
+end
+return moved
@@ -0,0 +1,20 @@
+-- KEYS[1] in-flight sorted set, task id scored by lease expiry (epoch ms)
+-- KEYS[2] delayed sorted set, task id scored by not-before time (epoch ms)
+-- KEYS[3] task id -> payload hash
+-- KEYS[4] task id -> receipt hash for in-flight tasks
+-- KEYS[5] task id -> "<ready list>\n<signal list>" hash for delayed tasks
+-- ARGV[1] task id
+-- ARGV[2] current time (epoch ms)
+-- ARGV[3] updated payload
+-- ARGV[4] not-before time (epoch ms)
+-- ARGV[5] promotion target
+local expiry = redis.call('ZSCORE', KEYS[1], ARGV[1])
+if not expiry or tonumber(expiry) > tonumber(ARGV[2]) then
+    return 0
+end
+redis.call('ZREM', KEYS[1], ARGV[1])
+redis.call('HDEL', KEYS[4], ARGV[1])
+redis.call('HSET', KEYS[3], ARGV[1], ARGV[3])
+redis.call('HSET', KEYS[5], ARGV[1], ARGV[5])
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1])
+return 1
@@ -0,0 +1,18 @@
+-- KEYS[1] in-flight sorted set, task id scored by lease expiry (epoch ms)
+-- KEYS[2] list to push the task id onto (ready or failed)
+-- KEYS[3] task id -> payload hash
+-- KEYS[4] task id -> receipt hash for in-flight tasks
+-- ARGV[1] task id
+-- ARGV[2] current time (epoch ms)
+-- ARGV[3] updated payload, empty to keep the stored one
+local expiry = redis.call('ZSCORE', KEYS[1], ARGV[1])
+if not expiry or tonumber(expiry) > tonumber(ARGV[2]) then
+    return 0
+end
+redis.call('ZREM', KEYS[1], ARGV[1])
+redis.call('HDEL', KEYS[4], ARGV[1])
+if ARGV[3] ~= '' then
+    redis.call('HSET', KEYS[3], ARGV[1], ARGV[3])
+end
+redis.call('LPUSH', KEYS[2], ARGV[1])
+return 1
@@ -0,0 +1,19 @@
+-- KEYS[1] stream the task was delivered from
+-- KEYS[2] task id -> payload hash
+-- KEYS[3] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- ARGV[1] consumer group
+-- ARGV[2] entry id taken from the claim receipt
+-- ARGV[3] task id
+local pending = redis.call('XPENDING', KEYS[1], ARGV[1], ARGV[2], ARGV[2], 1)
+if #pending == 0 then
+    return 0
+end
+local entry = redis.call('XRANGE', KEYS[1], ARGV[2], ARGV[2])
+if #entry == 0 or entry[1][2][2] ~= ARGV[3] then
+    return -1
+end
+redis.call('XACK', KEYS[1], ARGV[1], ARGV[2])
+redis.call('XDEL', KEYS[1], ARGV[2])
+redis.call('HDEL', KEYS[2], ARGV[3])
+redis.call('HDEL', KEYS[3], ARGV[3])
+return 1
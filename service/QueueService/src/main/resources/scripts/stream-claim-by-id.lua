@@ -0,0 +1,28 @@
+-- KEYS[1] stream the task is queued on
+-- KEYS[2] direct delivery stream of the task's type
+-- KEYS[3] task id -> payload hash
+-- KEYS[4] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- ARGV[1] consumer group
+-- ARGV[2] consumer name
+-- ARGV[3] task id
+-- Returns (entry id on the direct stream, payload), or nothing if the task is not waiting
+local payload = redis.call('HGET', KEYS[3], ARGV[3])
+local location = redis.call('HGET', KEYS[4], ARGV[3])
+local prefix = KEYS[1] .. '/'
+if not payload or not location or string.sub(location, 1, #prefix) ~= prefix then
+    return {}
+end
+local entry = string.sub(location, #prefix + 1)
+-- Already delivered to a consumer, so it is not ours to take
+if #redis.call('XPENDING', KEYS[1], ARGV[1], entry, entry, 1) > 0 then
+    return {}
+end
+if redis.call('XDEL', KEYS[1], entry) == 0 then
+    return {}
+end
+-- Every entry on the direct stream is read as soon as it is added, so this read delivers
+-- exactly the entry added here
+local direct = redis.call('XADD', KEYS[2], '*', 'id', ARGV[3])
+redis.call('XREADGROUP', 'GROUP', ARGV[1], ARGV[2], 'COUNT', 1, 'STREAMS', KEYS[2], '>')
+redis.call('HSET', KEYS[4], ARGV[3], KEYS[2] .. '/' .. direct)
+return {direct, payload}
@@ -0,0 +1,54 @@
+-- KEYS[1] high priority stream of the requested type
+-- KEYS[2] normal priority stream of the requested type
+-- KEYS[3] low priority stream of the requested type
+-- KEYS[4] task id -> payload hash
+-- ARGV[1] consumer group
+-- ARGV[2] consumer name
+-- ARGV[3] max number of tasks to claim
+-- ARGV[4] preferred level of each claim slot as digits (1 = high, 2 = normal, 3 = low)
+-- Returns flat (stream index, entry id, payload) triples
+local max = tonumber(ARGV[3])
+local quota = {0, 0, 0}
+for i = 1, #ARGV[4] do
+    local level = tonumber(string.sub(ARGV[4], i, i))
+    quota[level] = quota[level] + 1
+end
+
+local claimed = {}
+local count = 0
+local function read(level, wanted)
+    if wanted <= 0 then
+        return
+    end
+    local reply = redis.call('XREADGROUP', 'GROUP', ARGV[1], ARGV[2], 'COUNT', wanted, 'STREAMS', KEYS[level], '>')
+    if not reply then
+        return
+    end
+    for _, entry in ipairs(reply[1][2]) do
+        local fields = entry[2]
+        local id
+        for f = 1, #fields, 2 do
+            if fields[f] == 'id' then
+                id = fields[f + 1]
+            end
+        end
+        local payload = id and redis.call('HGET', KEYS[4], id)
+        if payload then
+            table.insert(claimed, tostring(level))
+            table.insert(claimed, entry[1])
+            table.insert(claimed, payload)
+            count = count + 1
+        else
+            redis.call('XACK', KEYS[level], ARGV[1], entry[1])
+            redis.call('XDEL', KEYS[level], entry[1])
+        end
+    end
+end
+
+for level = 1, 3 do
+    read(level, quota[level])
+end
+for level = 1, 3 do
+    read(level, max - count)
+end
+return claimed
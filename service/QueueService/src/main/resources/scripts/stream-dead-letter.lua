@@ -0,0 +1,18 @@
+-- KEYS[1] stream the task was delivered from
+-- KEYS[2] failed list of task ids
+-- KEYS[3] task id -> failure reason hash
+-- KEYS[4] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- ARGV[1] consumer group
+-- ARGV[2] entry id of the abandoned delivery
+-- ARGV[3] task id
+-- ARGV[4] failure reason
+local pending = redis.call('XPENDING', KEYS[1], ARGV[1], ARGV[2], ARGV[2], 1)
+if #pending == 0 then
+    return 0
+end
+redis.call('XACK', KEYS[1], ARGV[1], ARGV[2])
+redis.call('XDEL', KEYS[1], ARGV[2])
+redis.call('HDEL', KEYS[4], ARGV[3])
+redis.call('LPUSH', KEYS[2], ARGV[3])
+redis.call('HSET', KEYS[3], ARGV[3], ARGV[4])
+return 1
@@ -0,0 +1,19 @@
+-- KEYS[1] task id -> payload hash
+-- KEYS[2] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- KEYS[3] stream -> task type registry hash
+-- KEYS[4..] streams and signal lists of the tasks
+-- ARGV[1] max pending signals kept per signal list
+-- ARGV[2..] groups of (task id, payload, task type, index into KEYS of its stream, index of its signal list)
+-- The entry id is only known once XADD returns, so it is recorded here in the same step
+for i = 2, #ARGV, 5 do
+    local id = ARGV[i]
+    local stream = KEYS[tonumber(ARGV[i + 3])]
+    local signal = KEYS[tonumber(ARGV[i + 4])]
+    redis.call('HSET', KEYS[3], stream, ARGV[i + 2])
+    redis.call('HSET', KEYS[1], id, ARGV[i + 1])
+    local entry = redis.call('XADD', stream, '*', 'id', id)
+    redis.call('HSET', KEYS[2], id, stream .. '/' .. entry)
+    redis.call('LPUSH', signal, '1')
+    redis.call('LTRIM', signal, 0, tonumber(ARGV[1]) - 1)
+end
+return (#ARGV - 1) / 5
@@ -0,0 +1,16 @@
+-- KEYS[1] stream the task was delivered from
+-- ARGV[1] consumer group
+-- ARGV[2] consumer name
+-- ARGV[3] entry id taken from the claim receipt
+-- ARGV[4] task id
+local pending = redis.call('XPENDING', KEYS[1], ARGV[1], ARGV[3], ARGV[3], 1)
+if #pending == 0 then
+    return 0
+end
+local entry = redis.call('XRANGE', KEYS[1], ARGV[3], ARGV[3])
+if #entry == 0 or entry[1][2][2] ~= ARGV[4] then
+    return -1
+end
+-- Re-claiming an entry resets its idle time, which is what the lease is measured by
+redis.call('XCLAIM', KEYS[1], ARGV[1], ARGV[2], 0, ARGV[3], 'JUSTID')
+return 1
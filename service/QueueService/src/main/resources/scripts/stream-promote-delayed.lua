@@ -0,0 +1,28 @@
+-- KEYS[1] delayed sorted set, task id scored by not-before time (epoch ms)
+-- KEYS[2] task id -> "<stream>\n<signal list>" hash for delayed tasks
+-- KEYS[3] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- KEYS[4..] streams and signal lists of the due tasks
+-- ARGV[1] current time (epoch ms)
+-- ARGV[2] max pending signals kept per signal list
+-- ARGV[3..] triples of (task id, index into KEYS of its stream or 0 if it has none, index of its signal list)
+-- The caller reads the due tasks first, so every id is checked again here and skipped if another
+-- promoter moved it or it was delayed again in the meantime
+local promoted = 0
+for i = 3, #ARGV, 3 do
+    local id = ARGV[i]
+    local score = redis.call('ZSCORE', KEYS[1], id)
+    if score and tonumber(score) <= tonumber(ARGV[1]) then
+        redis.call('ZREM', KEYS[1], id)
+        redis.call('HDEL', KEYS[2], id)
+        local stream = tonumber(ARGV[i + 1])
+        if stream > 0 then
+            local signal = KEYS[tonumber(ARGV[i + 2])]
+            local entry = redis.call('XADD', KEYS[stream], '*', 'id', id)
+            redis.call('HSET', KEYS[3], id, KEYS[stream] .. '/' .. entry)
+            redis.call('LPUSH', signal, '1')
+            redis.call('LTRIM', signal, 0, tonumber(ARGV[2]) - 1)
+            promoted = promoted + 1
+        end
+    end
+end
+return promoted
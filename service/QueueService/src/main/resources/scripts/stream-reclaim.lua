@@ -0,0 +1,23 @@
+-- KEYS[1] stream to reclaim idle entries from
+-- KEYS[2] task id -> payload hash
+-- ARGV[1] consumer group
+-- ARGV[2] consumer name
+-- ARGV[3] min idle time (ms) after which a delivery counts as abandoned
+-- ARGV[4] cursor to resume scanning the pending entries list from
+-- ARGV[5] max number of entries to reclaim
+-- Returns the next cursor followed by flat (entry id, payload) pairs
+local reply = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5])
+local result = {reply[1]}
+for _, entry in ipairs(reply[2]) do
+    if entry and entry[2] then
+        local payload = redis.call('HGET', KEYS[2], entry[2][2])
+        if payload then
+            table.insert(result, entry[1])
+            table.insert(result, payload)
+        else
+            redis.call('XACK', KEYS[1], ARGV[1], entry[1])
+            redis.call('XDEL', KEYS[1], entry[1])
+        end
+    end
+end
+return result
@@ -0,0 +1,23 @@
+-- KEYS[1] failed list of task ids
+-- KEYS[2] task id -> failure reason hash
+-- KEYS[3] task id -> payload hash
+-- KEYS[4] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- KEYS[5..] streams and signal lists the tasks go back to
+-- ARGV[1] max pending signals kept per signal list
+-- ARGV[2..] groups of (task id, reset payload, index into KEYS of its stream, index of its signal list)
+local moved = {}
+for i = 2, #ARGV, 4 do
+    local id = ARGV[i]
+    if redis.call('LREM', KEYS[1], 1, id) > 0 then
+        local signal = KEYS[tonumber(ARGV[i + 3])]
+        redis.call('HDEL', KEYS[2], id)
+        redis.call('HSET', KEYS[3], id, ARGV[i + 1])
+        local stream = KEYS[tonumber(ARGV[i + 2])]
+        local entry = redis.call('XADD', stream, '*', 'id', id)
+        redis.call('HSET', KEYS[4], id, stream .. '/' .. entry)
+        redis.call('LPUSH', signal, '1')
+        redis.call('LTRIM', signal, 0, tonumber(ARGV[1]) - 1)
+        table.insert(moved, id)
+    end
+end
+return moved
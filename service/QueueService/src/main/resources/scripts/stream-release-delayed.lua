@@ -0,0 +1,22 @@
+-- KEYS[1] stream the task was delivered from
+-- KEYS[2] delayed sorted set, task id scored by not-before time (epoch ms)
+-- KEYS[3] task id -> payload hash
+-- KEYS[4] task id -> "<stream>\n<signal list>" hash for delayed tasks
+-- KEYS[5] task id -> "<stream>/<entry id>" hash of each task's current stream entry
+-- ARGV[1] consumer group
+-- ARGV[2] entry id of the abandoned delivery
+-- ARGV[3] task id
+-- ARGV[4] updated payload
+-- ARGV[5] not-before time (epoch ms)
+-- ARGV[6] promotion target
+local pending = redis.call('XPENDING', KEYS[1], ARGV[1], ARGV[2], ARGV[2], 1)
+if #pending == 0 then
+    return 0
+end
+redis.call('XACK', KEYS[1], ARGV[1], ARGV[2])
+redis.call('XDEL', KEYS[1], ARGV[2])
+redis.call('HDEL', KEYS[5], ARGV[3])
+redis.call('HSET', KEYS[3], ARGV[3], ARGV[4])
+redis.call('HSET', KEYS[4], ARGV[3], ARGV[6])
+redis.call('ZADD', KEYS[2], ARGV[5], ARGV[3])
+return 1
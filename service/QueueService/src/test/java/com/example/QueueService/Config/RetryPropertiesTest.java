@@ -0,0 +1,58 @@
+package com.example.QueueService.Config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPropertiesTest {
+
+    // Equal jitter: every delay lies between half the exponential step and the full step
+    @Test
+    void backoffStaysWithinEqualJitterBounds() {
+        final RetryProperties properties = new RetryProperties();
+        properties.setInitialBackoff(Duration.ofSeconds(2));
+        properties.setMultiplier(2.0);
+        properties.setMaxBackoff(Duration.ofMinutes(5));
+
+        for (int attempt = 1; attempt <= 12; attempt++) {
+            final long step = Math.min(2000L << (attempt - 1), Duration.ofMinutes(5).toMillis());
+            for (int i = 0; i < 500; i++) {
+                final long delay = properties.backoffFor(attempt).toMillis();
+                assertTrue(delay >= step / 2 && delay <= step, "attempt " + attempt + ": " + delay + "ms");
+            }
+        }
+    }
+
+    @Test
+    void backoffIsCappedAndSpreadOut() {
+        final RetryProperties properties = new RetryProperties();
+        properties.setMaxBackoff(Duration.ofSeconds(10));
+
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 2000; i++) {
+            final long delay = properties.backoffFor(30).toMillis();
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(min >= 5000 && max <= 10000, min + ".." + max);
+        // Tasks that failed together must not come back together
+        assertTrue(max - min > 2500, min + ".." + max);
+    }
+
+    @Test
+    void attemptsBelowOneUseTheInitialBackoff() {
+        final RetryProperties properties = new RetryProperties();
+        properties.setInitialBackoff(Duration.ofMillis(1));
+
+        for (int i = 0; i < 50; i++) {
+            final long delay = properties.backoffFor(0).toMillis();
+            assertTrue(delay == 0 || delay == 1, delay + "ms");
+        }
+        properties.setInitialBackoff(Duration.ZERO);
+        assertEquals(Duration.ZERO, properties.backoffFor(3));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.QueueService.Engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AppendLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final int HEADER_BYTES = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsInOrderAcrossSegments() throws IOException {
+        try (AppendLog log = open(64)) {
+            log.replay(record -> {});
+            for (int i = 0; i < 10; i++) {
+                log.append(bytes("record-" + i));
+            }
+        }
+
+        final List<String> replayed = replay(64);
+        assertEquals(10, replayed.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("record-" + i, replayed.get(i));
+        }
+    }
+
+    @Test
+    void stopsReplayAtRecordWithBadChecksum() throws IOException {
+        write("alpha", "beta", "gamma");
+
+        // Flip the first payload byte of "beta"
+        final Path segment = segments().get(0);
+        final int betaPayload = HEADER_BYTES + "alpha".length() + HEADER_BYTES;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, betaPayload);
+            b.put(0, (byte) (b.get(0) ^ 0x01));
+            b.rewind();
+            channel.write(b, betaPayload);
+        }
+
+        assertEquals(List.of("alpha"), replay(SEGMENT_SIZE));
+    }
+
+    @Test
+    void replayAfterTruncatedTailKeepsCompleteRecordsAndAppendsToNewSegment() throws IOException {
+        write("alpha", "beta", "gamma");
+
+        // Cut the file in the middle of "gamma", as a crash during the write would
+        final Path segment = segments().get(0);
+        final int gammaPayload = 3 * HEADER_BYTES + "alpha".length() + "beta".length();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(gammaPayload + 2);
+        }
+
+        try (AppendLog log = open(SEGMENT_SIZE)) {
+            final List<String> replayed = new ArrayList<>();
+            log.replay(record -> replayed.add(string(record)));
+            assertEquals(List.of("alpha", "beta"), replayed);
+            log.append(bytes("delta"));
+        }
+
+        assertEquals(2, segments().size());
+        assertEquals(List.of("alpha", "beta", "delta"), replay(SEGMENT_SIZE));
+    }
+
+    @Test
+    void deleteBeforeDropsSegmentsOlderThanTheSnapshot() throws IOException {
+        try (AppendLog log = open(SEGMENT_SIZE)) {
+            log.replay(record -> {});
+            log.append(bytes("old"));
+            final long snapshotStart = log.roll();
+            log.append(bytes("new"));
+            log.deleteBefore(snapshotStart);
+            assertEquals(0, log.sealedSegments());
+        }
+
+        assertEquals(List.of("new"), replay(SEGMENT_SIZE));
+    }
+
+    private AppendLog open(final int segmentSize) throws IOException {
+        return new AppendLog(directory, segmentSize);
+    }
+
+    private void write(final String... records) throws IOException {
+        try (AppendLog log = open(SEGMENT_SIZE)) {
+            log.replay(record -> {});
+            for (final String record : records) {
+                log.append(bytes(record));
+            }
+        }
+    }
+
+    private List<String> replay(final int segmentSize) throws IOException {
+        final List<String> replayed = new ArrayList<>();
+        try (AppendLog log = open(segmentSize)) {
+            log.replay(record -> replayed.add(string(record)));
+        }
+        return replayed;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(final ByteBuffer record) {
+        final byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.QueueService.Engine;
+
+import com.example.QueueService.Config.LeaseProperties;
+import com.example.QueueService.Engine.QueueEngine.FailedTask;
+import com.example.QueueService.Engine.QueueEngine.LeaseOutcome;
+import com.example.QueueService.PriorityScheduler;
+import com.example.shared.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedQueueEngineTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<EmbeddedQueueEngine> engines = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() throws IOException {
+        for (final EmbeddedQueueEngine engine : engines) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void ackAndExtendWithoutReceiptAreAccepted() throws Exception {
+        final EmbeddedQueueEngine engine = open();
+        engine.enqueue(List.of(task("t1")));
+        final Task claimed = engine.claim("image", 1, 0).get(0);
+
+        assertEquals(LeaseOutcome.OK, engine.extendLease("t1", null, Duration.ofMinutes(1)));
+        assertEquals(LeaseOutcome.STALE_RECEIPT, engine.ack("t1", "someone-else"));
+        assertEquals(LeaseOutcome.OK, engine.ack("t1", claimed.getReceipt()));
+        assertEquals(LeaseOutcome.NOT_IN_FLIGHT, engine.ack("t1", null));
+
+        engine.enqueue(List.of(task("t2")));
+        engine.claim("image", 1, 0);
+        assertEquals(LeaseOutcome.OK, engine.ack("t2", null));
+        assertEquals(0, engine.inFlight());
+    }
+
+    @Test
+    void compactionKeepsLiveStateAcrossRestart() throws Exception {
+        final EmbeddedQueueEngine engine = open();
+        populate(engine);
+        final Path newestBefore = segments().get(segments().size() - 1);
+        engine.compact();
+        assertTrue(segments().get(0).compareTo(newestBefore) > 0);
+        engine.shutdown();
+        engines.remove(engine);
+
+        assertLiveState(open());
+    }
+
+    // A crash between writing the snapshot and dropping the old segments replays the full history
+    // and then the snapshot; the reset marker in front of the snapshot must discard that history
+    @Test
+    void resetMarkerDiscardsHistoryLeftByInterruptedCompaction() throws Exception {
+        final EmbeddedQueueEngine engine = open();
+        populate(engine);
+        engine.flush();
+        final Path saved = Files.createTempDirectory("queue-history");
+        final List<Path> history = segments();
+        for (final Path segment : history) {
+            Files.copy(segment, saved.resolve(segment.getFileName()));
+        }
+
+        engine.compact();
+        engine.shutdown();
+        engines.remove(engine);
+        for (final Path segment : history) {
+            Files.copy(saved.resolve(segment.getFileName()), segment);
+        }
+
+        assertLiveState(open());
+    }
+
+    @Test
+    void failedCursorSurvivesNewFailuresAndRedriveOfItsTask() throws Exception {
+        final EmbeddedQueueEngine engine = open();
+        for (int i = 0; i < 5; i++) {
+            fail(engine, "f" + i);
+        }
+
+        final List<FailedTask> first = engine.failedTasks(null, 2);
+        assertEquals(List.of("f4", "f3"), ids(first));
+        final String cursor = first.get(1).cursor();
+
+        fail(engine, "f5");
+        assertEquals(List.of("f2", "f1"), ids(engine.failedTasks(cursor, 2)));
+
+        engine.redriveFailed(List.of(first.get(1).task()));
+        assertEquals(List.of("f2", "f1", "f0"), ids(engine.failedTasks(cursor, 10)));
+        assertEquals(List.of("f5", "f4", "f2", "f1", "f0"), ids(engine.failedTasks(null, 10)));
+    }
+
+    private EmbeddedQueueEngine open() throws IOException {
+        final EmbeddedQueueEngine engine = new EmbeddedQueueEngine(mapper, new LeaseProperties(),
+                new PriorityScheduler(6, 3, 1), directory.toString(), DataSize.ofBytes(2048), 1);
+        engines.add(engine);
+        return engine;
+    }
+
+    // 30 tasks: 10 acked, 5 in flight, 1 dead-lettered, the rest ready; plus a partly trimmed outbox
+    private void populate(final EmbeddedQueueEngine engine) throws Exception {
+        final List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            tasks.add(task("task-" + i));
+        }
+        engine.enqueue(tasks);
+
+        for (final Task claimed : engine.claim("image", 10, 0)) {
+            engine.ack(claimed.getId(), claimed.getReceipt());
+        }
+        final Task broken = engine.claim("image", 6, 0).get(0);
+        engine.extendLease(broken.getId(), broken.getReceipt(), Duration.ZERO);
+        assertTrue(engine.deadLetter(broken, "broken"));
+
+        engine.appendOutbox(List.of("one", "two", "three"));
+        engine.trimOutbox("owner", List.of("one"));
+        assertTrue(segments().size() > 1);
+    }
+
+    private static void fail(final EmbeddedQueueEngine engine, final String id) throws Exception {
+        engine.enqueue(List.of(task(id)));
+        final Task claimed = engine.claim("image", 1, 0).get(0);
+        engine.extendLease(claimed.getId(), claimed.getReceipt(), Duration.ZERO);
+        assertTrue(engine.deadLetter(claimed, "broken"));
+    }
+
+    private static List<String> ids(final List<FailedTask> failed) {
+        return failed.stream().map(FailedTask::id).toList();
+    }
+
+    private static void assertLiveState(final EmbeddedQueueEngine engine) {
+        assertEquals(14, engine.depth("image"));
+        assertEquals(5, engine.inFlight());
+        assertEquals(1, engine.failedCount());
+        assertEquals(List.of("two", "three"), engine.outboxHead(10));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static Task task(final String id) {
+        final Task task = new Task("image", Map.of("key", "uploads/" + id + ".png"));
+        task.setId(id);
+        return task;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.QueueService.Engine;
+
+import com.example.shared.Task;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskPayloadCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final TaskPayloadCodec binary = new TaskPayloadCodec(mapper, "binary");
+    private final TaskPayloadCodec json = new TaskPayloadCodec(mapper, " JSON ");
+
+    @Test
+    void binaryPayloadsAreBase64AndReadBack() throws Exception {
+        final String payload = binary.write(task());
+
+        assertFalse(payload.startsWith("{"));
+        assertSameTask(task(), binary.read(payload));
+        assertSameTask(task(), json.read(payload));
+    }
+
+    @Test
+    void jsonPayloadsAreDetectedByEitherFormat() throws Exception {
+        final String payload = json.write(task());
+
+        assertTrue(payload.startsWith("{"));
+        assertSameTask(task(), json.read(payload));
+        assertSameTask(task(), binary.read(payload));
+    }
+
+    private static Task task() {
+        final Task task = new Task("image", Map.of("key", "uploads/a.png", "steps", List.of("resize", "blur")));
+        task.setId("task-1");
+        task.setCreatedAt(Instant.parse("2024-03-01T10:15:30.123Z"));
+        task.setPriority(2);
+        task.setIdempotencyKey("client-42");
+        return task;
+    }
+
+    private static void assertSameTask(final Task expected, final Task actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getIdempotencyKey(), actual.getIdempotencyKey());
+        assertEquals(expected.getPayload(), actual.getPayload());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.QueueService;
+
+import com.example.QueueService.PriorityScheduler.PriorityLevel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PrioritySchedulerTest {
+
+    @Test
+    void mapsPriorityToLevel() {
+        final PriorityScheduler scheduler = new PriorityScheduler(6, 3, 1);
+
+        assertEquals(PriorityLevel.HIGH, scheduler.levelOf(5));
+        assertEquals(PriorityLevel.NORMAL, scheduler.levelOf(0));
+        assertEquals(PriorityLevel.LOW, scheduler.levelOf(-1));
+    }
+
+    @Test
+    void cycleServesLevelsInProportionToTheirWeights() {
+        final String cycle = new PriorityScheduler(6, 3, 1).nextPreferences("image", 10);
+
+        assertEquals(10, cycle.length());
+        assertEquals(6, count(cycle, '1'));
+        assertEquals(3, count(cycle, '2'));
+        assertEquals(1, count(cycle, '3'));
+    }
+
+    // Smooth round-robin interleaves the levels instead of serving six high slots in a row
+    @Test
+    void cycleInterleavesLevels() {
+        final String cycle = new PriorityScheduler(6, 3, 1).nextPreferences("image", 10);
+
+        assertFalse((cycle + cycle).contains("111"), cycle);
+        assertFalse(cycle.startsWith("3"), cycle);
+    }
+
+    @Test
+    void eachTypeKeepsItsOwnPlaceInTheCycle() {
+        final PriorityScheduler scheduler = new PriorityScheduler(6, 3, 1);
+        final String cycle = new PriorityScheduler(6, 3, 1).nextPreferences("reference", 25);
+
+        final StringBuilder image = new StringBuilder();
+        image.append(scheduler.nextPreferences("image", 4));
+        assertEquals(cycle.substring(0, 7), scheduler.nextPreferences("email", 7));
+        image.append(scheduler.nextPreferences("image", 21));
+
+        assertEquals(cycle, image.toString());
+    }
+
+    @Test
+    void nonPositiveWeightsStillGetASlot() {
+        final String cycle = new PriorityScheduler(0, -2, 1).nextPreferences("image", 3);
+
+        assertEquals(1, count(cycle, '1'));
+        assertEquals(1, count(cycle, '2'));
+        assertEquals(1, count(cycle, '3'));
+    }
+
+    private static long count(final String cycle, final char level) {
+        return cycle.chars().filter(c -> c == level).count();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.TaskDBService;
 
 import com.example.shared.Task;
+import com.example.shared.TaskStatusUpdate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -98,6 +99,23 @@ public class TaskDBController {
         }
     }
 
+    @PutMapping("/status")
+    public ResponseEntity<Void> updateTaskStatuses(@RequestBody final List<TaskStatusUpdate> updates) {
+        System.out.println("=== TASK DB CONTROLLER: Bulk update task status ===");
+        System.out.println("TaskDBController: Updating status for " + updates.size() + " tasks");
+
+        try {
+            System.out.println("TaskDBController: Calling taskDBService.updateStatuses()...");
+            int updated = taskDBService.updateStatuses(updates);
+            System.out.println("TaskDBController: Updated status for " + updated + " tasks");
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            System.err.println("TaskDBController ERROR: Failed to bulk update task status: " + e.getMessage());
+            e.printStackTrace();
+            throw e;
+        }
+    }
+
     @PutMapping("/{id}/processing")
     public ResponseEntity<Void> markTaskProcessing(@PathVariable final String id) {
         System.out.println("=== TASK DB CONTROLLER: Mark task as processing ===");
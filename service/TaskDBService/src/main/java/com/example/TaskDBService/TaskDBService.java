@@ -1,9 +1,12 @@
 package com.example.TaskDBService;
 
+import com.example.shared.TaskStatusUpdate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -41,6 +44,28 @@ public class TaskDBService {
         });
     }
 
+    @Transactional
+    public int updateStatuses(final List<TaskStatusUpdate> updates) {
+        final Map<String, TaskStatusUpdate> byId = new LinkedHashMap<>();
+        for (final TaskStatusUpdate update : updates) {
+            byId.put(update.getId(), update);
+        }
+
+        final List<TaskDB> tasks = taskRepository.findAllById(byId.keySet());
+        for (final TaskDB task : tasks) {
+            final TaskStatusUpdate update = byId.get(task.getId());
+            task.setStatus(update.getStatus());
+            if (update.getResultUrl() != null) {
+                task.setResultUrl(update.getResultUrl());
+            }
+            if ("completed".equals(update.getStatus())) {
+                task.setCompletedAt(java.time.Instant.now());
+            }
+        }
+        taskRepository.saveAll(tasks);
+        return tasks.size();
+    }
+
     @Transactional
     public void markTaskCompleted(final String id, final String resultUrl) {
         taskRepository.findById(id).ifPresent(task -> {
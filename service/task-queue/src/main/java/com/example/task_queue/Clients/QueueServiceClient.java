@@ -4,9 +4,10 @@ import com.example.shared.Task;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 @FeignClient(name = "queue-service")
 public interface QueueServiceClient {
     @PostMapping("/queue/enqueue")
-    void enqueueTask(@RequestBody Task task);
+    void enqueueTask(@RequestHeader("X-Client-Id") String clientId, @RequestBody Task task);
 }
@@ -5,8 +5,10 @@ import com.example.task_queue.Clients.QueueServiceClient;
 import com.example.task_queue.Clients.TaskDBClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.FeignException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -18,6 +20,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -58,7 +61,14 @@ public class TaskController {
             @RequestParam(value = "invert", required = false) final Boolean invert,
             @RequestParam(value = "blur", required = false) final Boolean blur,
             @RequestParam(value = "resize", required = false) final Boolean resize,
-            @RequestParam(value = "watermark", required = false) final Boolean watermark
+            @RequestParam(value = "maxWidth", required = false) final Integer maxWidth,
+            @RequestParam(value = "maxHeight", required = false) final Integer maxHeight,
+            @RequestParam(value = "resizeFilter", required = false) final String resizeFilter,
+            @RequestParam(value = "watermark", required = false) final Boolean watermark,
+            @RequestParam(value = "priority", defaultValue = "0") final int priority,
+            @RequestHeader(value = "Idempotency-Key", required = false) final String idempotencyKey,
+            @RequestHeader(value = "X-Client-Id", required = false) final String clientId,
+            final HttpServletRequest request
     ) throws Exception {
 
         final long startTime = System.currentTimeMillis();
@@ -71,6 +81,9 @@ public class TaskController {
         if (invert != null) options.put("invert", invert);
         if (blur != null) options.put("blur", blur);
         if (resize != null) options.put("resize", resize);
+        if (maxWidth != null) options.put("maxWidth", maxWidth);
+        if (maxHeight != null) options.put("maxHeight", maxHeight);
+        if (resizeFilter != null) options.put("resizeFilter", resizeFilter);
         if (watermark != null) options.put("watermark", watermark);
         log.debug("Task {} options: {}", taskId, options);
 
@@ -93,6 +106,8 @@ public class TaskController {
         final Task task = new Task(type, payload);
         task.setId(taskId);
         task.setStatus("queued");
+        task.setPriority(priority);
+        task.setIdempotencyKey(idempotencyKey);
 
         try {
             log.info("Persisting task {} in database", taskId);
@@ -105,8 +120,20 @@ public class TaskController {
 
         try {
             log.info("Enqueuing task {} to QueueService", taskId);
-            queueServiceClient.enqueueTask(task);
+            queueServiceClient.enqueueTask(clientId == null || clientId.isBlank() ? request.getRemoteAddr() : clientId.trim(), task);
             log.info("Task {} successfully enqueued", taskId);
+        } catch (FeignException.Conflict e) {
+            final String originalId = mapper.readTree(e.contentUTF8()).path("duplicateOf").asText(null);
+            log.info("Task {} duplicates task {} (idempotency key '{}')", taskId, originalId, idempotencyKey);
+            taskDBClient.markTaskFailed(taskId, "Duplicate of task " + originalId);
+            return ResponseEntity.ok(new SubmitResponse(originalId, "duplicate"));
+        } catch (FeignException.TooManyRequests e) {
+            log.warn("Task {} rejected by queue admission control: {}", taskId, e.contentUTF8());
+            taskDBClient.markTaskFailed(taskId, "Rejected by admission control");
+            final String retryAfter = e.responseHeaders().getOrDefault(HttpHeaders.RETRY_AFTER, List.of("1")).iterator().next();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                    .body(e.contentUTF8());
         } catch (FeignException e) {
             log.error("Failed to enqueue task {}: {}", taskId, e.contentUTF8(), e);
             taskDBClient.markTaskFailed(taskId, "Failed to enqueue task");
@@ -9,10 +9,14 @@ public class Task {
     private Instant createdAt;
     private Instant startedAt;
     private Instant completedAt;
+    private Instant notBefore;
     private int attempts;
+    private int priority;
     private String status;
     private String resultUrl;
     private Map<String, Object> payload;
+    private String receipt;
+    private String idempotencyKey;
 
     public Task() {}
 
@@ -41,9 +45,15 @@ public class Task {
     public Instant getCompletedAt() { return completedAt; }
     public void setCompletedAt(final Instant completedAt) { this.completedAt = completedAt; }
 
+    public Instant getNotBefore() { return notBefore; }
+    public void setNotBefore(final Instant notBefore) { this.notBefore = notBefore; }
+
     public int getAttempts() { return attempts; }
     public void setAttempts(final int attempts) { this.attempts = attempts; }
 
+    public int getPriority() { return priority; }
+    public void setPriority(final int priority) { this.priority = priority; }
+
     public String getStatus() { return status; }
     public void setStatus(final String status) { this.status = status; }
 
@@ -53,6 +63,12 @@ public class Task {
     public Map<String, Object> getPayload() { return payload; }
     public void setPayload(final Map<String, Object> payload) { this.payload = payload; }
 
+    public String getReceipt() { return receipt; }
+    public void setReceipt(final String receipt) { this.receipt = receipt; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(final String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
     @Override
     public String toString() {
         return "Task{" +
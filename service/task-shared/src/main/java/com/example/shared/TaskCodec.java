@@ -0,0 +1,244 @@
+package com.example.shared;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of {@link Task}. Fields are written in a fixed order behind a version byte,
+ * with varint lengths and numbers and a presence bitmask for the nullable fields.
+ */
+public final class TaskCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int CREATED_AT = 1;
+    private static final int STARTED_AT = 1 << 1;
+    private static final int COMPLETED_AT = 1 << 2;
+    private static final int NOT_BEFORE = 1 << 3;
+    private static final int STATUS = 1 << 4;
+    private static final int RESULT_URL = 1 << 5;
+    private static final int RECEIPT = 1 << 6;
+    private static final int IDEMPOTENCY_KEY = 1 << 7;
+    private static final int PAYLOAD = 1 << 8;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte MAP = 6;
+    private static final byte LIST = 7;
+
+    private TaskCodec() {}
+
+    public static byte[] encode(final Task task) {
+        final Writer out = new Writer();
+        out.write(VERSION);
+        out.writeString(task.getId());
+        out.writeString(task.getType());
+        out.writeVarint(presence(task));
+        out.writeVarint(task.getAttempts());
+        out.writeVarint(zigzag(task.getPriority()));
+        writeInstant(out, task.getCreatedAt());
+        writeInstant(out, task.getStartedAt());
+        writeInstant(out, task.getCompletedAt());
+        writeInstant(out, task.getNotBefore());
+        writeOptional(out, task.getStatus());
+        writeOptional(out, task.getResultUrl());
+        writeOptional(out, task.getReceipt());
+        writeOptional(out, task.getIdempotencyKey());
+        if (task.getPayload() != null) {
+            writeValue(out, task.getPayload());
+        }
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Task decode(final byte[] bytes) {
+        final ByteBuffer in = open(bytes);
+        final Task task = new Task();
+        task.setId(readString(in));
+        task.setType(readString(in));
+        final int presence = (int) readVarint(in);
+        task.setAttempts((int) readVarint(in));
+        task.setPriority((int) unzigzag(readVarint(in)));
+        task.setCreatedAt((presence & CREATED_AT) != 0 ? readInstant(in) : null);
+        task.setStartedAt((presence & STARTED_AT) != 0 ? readInstant(in) : null);
+        task.setCompletedAt((presence & COMPLETED_AT) != 0 ? readInstant(in) : null);
+        task.setNotBefore((presence & NOT_BEFORE) != 0 ? readInstant(in) : null);
+        task.setStatus((presence & STATUS) != 0 ? readString(in) : null);
+        task.setResultUrl((presence & RESULT_URL) != 0 ? readString(in) : null);
+        task.setReceipt((presence & RECEIPT) != 0 ? readString(in) : null);
+        task.setIdempotencyKey((presence & IDEMPOTENCY_KEY) != 0 ? readString(in) : null);
+        task.setPayload((presence & PAYLOAD) != 0 ? (Map<String, Object>) readValue(in) : null);
+        return task;
+    }
+
+    private static int presence(final Task task) {
+        int presence = 0;
+        presence |= task.getCreatedAt() != null ? CREATED_AT : 0;
+        presence |= task.getStartedAt() != null ? STARTED_AT : 0;
+        presence |= task.getCompletedAt() != null ? COMPLETED_AT : 0;
+        presence |= task.getNotBefore() != null ? NOT_BEFORE : 0;
+        presence |= task.getStatus() != null ? STATUS : 0;
+        presence |= task.getResultUrl() != null ? RESULT_URL : 0;
+        presence |= task.getReceipt() != null ? RECEIPT : 0;
+        presence |= task.getIdempotencyKey() != null ? IDEMPOTENCY_KEY : 0;
+        presence |= task.getPayload() != null ? PAYLOAD : 0;
+        return presence;
+    }
+
+    private static ByteBuffer open(final byte[] bytes) {
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        final byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported task encoding version " + version);
+        }
+        return in;
+    }
+
+    private static void writeInstant(final Writer out, final Instant instant) {
+        if (instant != null) {
+            out.writeVarint(zigzag(instant.getEpochSecond()));
+            out.writeVarint(instant.getNano());
+        }
+    }
+
+    private static Instant readInstant(final ByteBuffer in) {
+        return Instant.ofEpochSecond(unzigzag(readVarint(in)), readVarint(in));
+    }
+
+    private static void writeOptional(final Writer out, final String value) {
+        if (value != null) {
+            out.writeString(value);
+        }
+    }
+
+    private static void writeValue(final Writer out, final Object value) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof String string) {
+            out.write(STRING);
+            out.writeString(string);
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.write(LONG);
+            out.writeVarint(zigzag(((Number) value).longValue()));
+        } else if (value instanceof Number number) {
+            out.write(DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits(number.doubleValue()));
+        } else if (value instanceof Map<?, ?> map) {
+            out.write(MAP);
+            out.writeVarint(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                out.writeString(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof List<?> list) {
+            out.write(LIST);
+            out.writeVarint(list.size());
+            for (final Object element : list) {
+                writeValue(out, element);
+            }
+        } else {
+            out.write(STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    private static Object readValue(final ByteBuffer in) {
+        final byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> readString(in);
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case LONG -> {
+                // Small numbers come back as Integer, the way Jackson reads them from JSON
+                final long value = unzigzag(readVarint(in));
+                yield value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case DOUBLE -> Double.longBitsToDouble(in.getLong());
+            case MAP -> {
+                final int size = (int) readVarint(in);
+                final Map<String, Object> map = new LinkedHashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(in), readValue(in));
+                }
+                yield map;
+            }
+            case LIST -> {
+                final int size = (int) readVarint(in);
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            default -> throw new IllegalArgumentException("Unknown payload value tag " + tag);
+        };
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final int length = (int) readVarint(in);
+        final String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static long readVarint(final ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        private Writer() {
+            super(128);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeLong(final long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+
+        // A null id or type is written as an empty string, they are required on stored tasks
+        private void writeString(final String value) {
+            final byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.shared;
+
+public class TaskStatusUpdate {
+    private String id;
+    private String status;
+    private String resultUrl;
+
+    public TaskStatusUpdate() {}
+
+    public TaskStatusUpdate(final String id, final String status, final String resultUrl) {
+        this.id = id;
+        this.status = status;
+        this.resultUrl = resultUrl;
+    }
+
+    public String getId() { return id; }
+    public void setId(final String id) { this.id = id; }
+
+    public String getStatus() { return status; }
+    public void setStatus(final String status) { this.status = status; }
+
+    public String getResultUrl() { return resultUrl; }
+    public void setResultUrl(final String resultUrl) { this.resultUrl = resultUrl; }
+}
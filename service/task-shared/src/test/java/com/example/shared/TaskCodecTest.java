@@ -0,0 +1,112 @@
+package com.example.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TaskCodecTest {
+
+    @Test
+    void roundTripsEveryField() {
+        final Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("key", "uploads/ünïcödé.png");
+        payload.put("width", 640);
+        payload.put("bytes", 5_000_000_000L);
+        payload.put("offset", -17);
+        payload.put("quality", 0.85);
+        payload.put("grayscale", true);
+        payload.put("blur", false);
+        payload.put("missing", null);
+        payload.put("steps", List.of("resize", Map.of("angle", 90)));
+        payload.put("empty", Map.of());
+
+        final Task task = new Task("image", payload);
+        task.setId("task-1");
+        task.setCreatedAt(Instant.parse("2024-03-01T10:15:30.123456789Z"));
+        task.setStartedAt(Instant.parse("1969-12-31T23:59:59.5Z"));
+        task.setCompletedAt(Instant.EPOCH);
+        task.setNotBefore(Instant.parse("2030-01-01T00:00:00Z"));
+        task.setAttempts(3);
+        task.setPriority(-7);
+        task.setStatus("processing");
+        task.setResultUrl("https://example.com/result.png");
+        task.setReceipt("receipt-1");
+        task.setIdempotencyKey("client-42");
+
+        assertSameTask(task, TaskCodec.decode(TaskCodec.encode(task)));
+    }
+
+    @Test
+    void keepsAbsentFieldsAbsent() {
+        final Task task = new Task();
+        task.setId("task-2");
+        task.setType("email");
+
+        final Task decoded = TaskCodec.decode(TaskCodec.encode(task));
+        assertSameTask(task, decoded);
+        assertNull(decoded.getCreatedAt());
+        assertNull(decoded.getPayload());
+    }
+
+    @Test
+    void readsSmallNumbersAsIntegersAndLargeOnesAsLongs() {
+        final Task task = new Task();
+        task.setId("task-3");
+        task.setType("image");
+        task.setPayload(Map.of("small", 1L, "max", (long) Integer.MAX_VALUE, "large", Integer.MAX_VALUE + 1L));
+
+        final Map<String, Object> decoded = TaskCodec.decode(TaskCodec.encode(task)).getPayload();
+        assertEquals(1, decoded.get("small"));
+        assertEquals(Integer.MAX_VALUE, decoded.get("max"));
+        assertEquals(Integer.MAX_VALUE + 1L, decoded.get("large"));
+    }
+
+    @Test
+    void keepsLongListsAndStrings() {
+        final List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            values.add(i * 1000);
+        }
+        final Task task = new Task();
+        task.setId("x".repeat(200));
+        task.setType("image");
+        task.setPayload(Map.of("values", values));
+
+        assertSameTask(task, TaskCodec.decode(TaskCodec.encode(task)));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        final Task task = new Task();
+        task.setId("task-4");
+        task.setType("image");
+        final byte[] bytes = TaskCodec.encode(task);
+        bytes[0] = TaskCodec.VERSION + 1;
+
+        assertThrows(IllegalArgumentException.class, () -> TaskCodec.decode(bytes));
+    }
+
+    private static void assertSameTask(final Task expected, final Task actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getStartedAt(), actual.getStartedAt());
+        assertEquals(expected.getCompletedAt(), actual.getCompletedAt());
+        assertEquals(expected.getNotBefore(), actual.getNotBefore());
+        assertEquals(expected.getAttempts(), actual.getAttempts());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getResultUrl(), actual.getResultUrl());
+        assertEquals(expected.getReceipt(), actual.getReceipt());
+        assertEquals(expected.getIdempotencyKey(), actual.getIdempotencyKey());
+        assertEquals(expected.getPayload(), actual.getPayload());
+    }
+}